@@ -0,0 +1,6 @@
+-- Adds the last-modified column the booking history cache refreshes by.
+-- Run once per database (with sharding, on every shard), during a maintenance window:
+-- the ALTER waits for open booking transactions to finish.
+ALTER TABLE booking
+    ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    ADD INDEX idx_booking_user_updated (user_id, updated_at);
@@ -0,0 +1,404 @@
+package rims;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Scanner;
+
+
+   //ADMIN / OWNER CLASS
+class Admin implements UserRole {
+    // Overridable with -Drims.db.url=... etc. (e.g. to point the load generator at a scratch database)
+    protected static final String DB_URL  = System.getProperty("rims.db.url", "jdbc:mysql://localhost:3306/rims");
+    protected static final String DB_USER = System.getProperty("rims.db.user", "root");
+    protected static final String DB_PASS = System.getProperty("rims.db.pass", "root");
+
+    private static volatile boolean driverLoaded;
+
+    // Registers the JDBC driver once per JVM instead of on every connect()
+    static void loadDriver() throws ClassNotFoundException {
+        if (driverLoaded) return;
+        synchronized (Admin.class) {
+            if (driverLoaded) return;
+            if (DB_URL.startsWith("jdbc:mysql:")) Class.forName("com.mysql.cj.jdbc.Driver");
+            driverLoaded = true;
+        }
+    }
+
+    // In fast-start mode connections come from (and return to) the prewarmed pool
+    protected static Connection connect() throws Exception {
+        return connectTo(DB_URL);
+    }
+
+    // Connection to one database (the primary or a shard)
+    static Connection connectTo(String url) throws Exception {
+        loadDriver();
+        if (!FastStart.enabled()) return DriverManager.getConnection(url, connectionProperties(url));
+        Connection pooled = FastStart.borrow(url);
+        return pooled != null ? pooled : FastStart.pooled(url, FastStart.open(url));
+    }
+
+    // Credentials plus the shard's id-sequence settings, which the driver applies once when it opens
+    // the physical connection rather than on every checkout
+    static Properties connectionProperties(String url) {
+        Properties props = new Properties();
+        props.setProperty("user", DB_USER);
+        props.setProperty("password", DB_PASS);
+        String vars = ShardRouter.sessionVariables(url);
+        if (vars != null && url.startsWith("jdbc:mysql:")) props.setProperty("sessionVariables", vars);
+        return props;
+    }
+
+    // Connection to the shard holding the property (the primary when not sharded)
+    protected static Connection connect(int propertyId) throws Exception {
+        return ShardRouter.forProperty(propertyId);
+    }
+
+    // After a routed statement matched nothing: true when the property now routes elsewhere (retry once)
+    protected static boolean rerouted(int propertyId) {
+        try {
+            return ShardRouter.reroute(propertyId);
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    // The property's Active booking, or -1. Until it is Completed or Cancelled nobody can book the property.
+    protected static int activeBooking(Connection con, int propertyId) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(
+                "SELECT booking_id FROM booking WHERE property_id=? AND status='Active' LIMIT 1")) {
+            ps.setInt(1, propertyId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt("booking_id") : -1;
+            }
+        }
+    }
+
+    // --- Validation helpers available to subclasses ---
+    public static boolean isValidEmail(String email) {
+        return email != null && email.matches("^[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,6}$");
+    }
+
+    public static boolean isValidPhone(String phone) {
+        return phone != null && phone.matches("\\d{10}");
+    }
+
+    public static LocalDate parseValidDate(String s) throws DateTimeParseException {
+        LocalDate d = LocalDate.parse(s);
+        int y = d.getYear();
+        if (y < 2000 || y > 2100) throw new IllegalArgumentException("Year must be between 2000 and 2100.");
+        return d;
+    }
+
+    // Shared with the fast-start warm-up so the cached statement matches exactly
+    static final String ALL_PROPERTIES_SQL =
+            "SELECT property_id, name, type, location, price_per_month, availability_status, sharing FROM property ORDER BY property_id";
+
+    @Override
+    public void viewProperties() 
+    {
+        try {
+            List<Map.Entry<Integer, String>> rows = ShardRouter.gather(
+                    ALL_PROPERTIES_SQL,
+                    null,
+                    (shard, rs) -> {
+                        Object sharingObj = rs.getObject("sharing");
+                        String sharing = sharingObj == null ? "-" : String.valueOf(rs.getInt("sharing"));
+                        return Map.entry(rs.getInt("property_id"), String.format("%d | %s | %s | %s | %.2f | %s | %s",
+                                rs.getInt("property_id"),
+                                rs.getString("name"),
+                                rs.getString("type"),
+                                rs.getString("location"),
+                                rs.getDouble("price_per_month"),
+                                rs.getString("availability_status"),
+                                sharing));
+                    },
+                    Map.Entry.comparingByKey());
+
+            System.out.println("\nID | Name | Type | Location | Price | Status | Sharing");
+            for (Map.Entry<Integer, String> row : rows) System.out.println(row.getValue());
+            if (rows.isEmpty()) System.out.println("(No properties found)");
+        } catch (Exception ex) {
+            System.out.println("View failed: " + ex.getMessage());
+        }
+    }
+
+    // Add property — asks for sharing when type is PG. (Assumes property table has 'sharing' column)
+    protected void addProperty(Scanner sc) {
+        try {
+            System.out.print("Property Name: ");
+            String name = sc.nextLine().trim();
+            System.out.print("Type (PG/Apartment/House): ");
+            String type = sc.nextLine().trim();
+            System.out.print("Location: ");
+            String location = sc.nextLine().trim();
+
+            double price;
+            while (true) {
+                try {
+                    System.out.print("Price per Month: ");
+                    price = Double.parseDouble(sc.nextLine().trim());
+                    if (price < 0) { System.out.println("Enter non-negative price."); continue; }
+                    break;
+                } catch (NumberFormatException nfe) {
+                    System.out.println("Invalid number. Try again.");
+                }
+            }
+
+            Integer sharing = null;
+            if ("PG".equalsIgnoreCase(type)) {
+                while (true) {
+                    System.out.print("Sharing count (number of people sharing): ");
+                    String s = sc.nextLine().trim();
+                    try {
+                        int sh = Integer.parseInt(s);
+                        if (sh <= 0) { System.out.println("Enter positive integer."); continue; }
+                        sharing = sh;
+                        break;
+                    } catch (NumberFormatException nfe) {
+                        System.out.println("Invalid integer; try again.");
+                    }
+                }
+            }
+
+            // New listings go to the shard that owns their location
+            int shard = ShardRouter.shardForLocation(location);
+            try (Connection con = ShardRouter.open(shard);
+                 PreparedStatement ps = con.prepareStatement(
+                         "INSERT INTO property (name, type, location, price_per_month, availability_status, sharing) VALUES (?,?,?,?,?,?)",
+                         Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, name);
+                ps.setString(2, type);
+                ps.setString(3, location);
+                ps.setDouble(4, price);
+                ps.setString(5, "Available");
+                if (sharing == null) ps.setNull(6, java.sql.Types.INTEGER);
+                else ps.setInt(6, sharing);
+
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys.next()) ShardRouter.placed(keys.getInt(1), shard);
+                }
+            }
+            System.out.println("Property added!");
+        } catch (Exception ex) {
+            System.out.println("Add failed: " + ex.getMessage());
+        }
+    }
+
+    protected void changePropertyAvailability(Scanner sc) {
+        viewProperties();
+        try {
+            System.out.print("Enter Property ID to change status: ");
+            int pid = Integer.parseInt(sc.nextLine().trim());
+            System.out.print("Enter new status (Available/Booked/Not Available): ");
+            String status = sc.nextLine().trim();
+
+            if (!status.equalsIgnoreCase("Available") &&
+                !status.equalsIgnoreCase("Booked") &&
+                !status.equalsIgnoreCase("Not Available")) {
+                System.out.println("Invalid status. Use Available / Booked / Not Available.");
+                return;
+            }
+
+            Waitlist.ensureLoaded(); // before the transaction: creating the table locks property metadata
+            int updated = setAvailability(pid, status);
+            if (updated == 0 && rerouted(pid)) updated = setAvailability(pid, status);
+            if (updated == 0) {
+                System.out.println("No property found with that ID.");
+                return;
+            }
+            System.out.println("Status updated!");
+            if (status.equalsIgnoreCase("Available")) {
+                int bid;
+                try (Connection con = connect(pid)) {
+                    bid = activeBooking(con, pid);
+                }
+                if (bid != -1)
+                    System.out.println("Booking " + bid + " is still Active: mark it Completed or Cancelled (option 5) "
+                            + "before the property can be booked or offered to its waitlist.");
+            }
+        } catch (Exception ex) {
+            System.out.println("Update failed: " + ex.getMessage());
+        }
+    }
+
+    private static int setAvailability(int pid, String status) throws Exception {
+        Waitlist.Offer offer = null;
+        int updated;
+        try (Connection con = connect(pid);
+             PreparedStatement ps = con.prepareStatement(
+                     "UPDATE property SET availability_status=? WHERE property_id=?")) {
+            con.setAutoCommit(false);
+            try {
+                ps.setString(1, status);
+                ps.setInt(2, pid);
+                updated = ps.executeUpdate();
+                // Hand a newly available property to the head of its waitlist in the same transaction
+                if (updated > 0 && status.equalsIgnoreCase("Available")) offer = Waitlist.offerNext(con, pid);
+                con.commit();
+            } catch (Exception inner) {
+                con.rollback();
+                throw inner;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+        Waitlist.offered(offer);
+        return updated;
+    }
+
+    protected void deleteProperty(Scanner sc) {
+        viewProperties();
+        try {
+            System.out.print("Enter Property ID to delete: ");
+            int pid = Integer.parseInt(sc.nextLine().trim());
+            int del = deleteRow(pid);
+            if (del == 0 && rerouted(pid)) del = deleteRow(pid);
+            if (del > 0) ShardRouter.removed(pid);
+            if (del > 0) System.out.println("Property deleted.");
+            else System.out.println("No property found.");
+        } catch (SQLIntegrityConstraintViolationException tie) {
+            System.out.println("Cannot delete: property is referenced by bookings or residents.");
+        } catch (Exception ex) {
+            System.out.println("Delete failed: " + ex.getMessage());
+        }
+    }
+
+    private static int deleteRow(int pid) throws Exception {
+        try (Connection con = connect(pid);
+             PreparedStatement ps = con.prepareStatement("DELETE FROM property WHERE property_id=?")) {
+            ps.setInt(1, pid);
+            return ps.executeUpdate();
+        }
+    }
+
+    // Names of the given users; the user table lives on the primary only
+    static Map<Integer, String> userNames(Collection<Integer> ids) throws Exception {
+        Map<Integer, String> names = new HashMap<>();
+        List<Integer> all = new ArrayList<>(ids);
+        try (Connection con = connect()) {
+            for (int i = 0; i < all.size(); i += 500) {
+                List<Integer> chunk = all.subList(i, Math.min(all.size(), i + 500));
+                StringBuilder sql = new StringBuilder("SELECT user_id, name FROM user WHERE user_id IN (");
+                for (int j = 0; j < chunk.size(); j++) sql.append(j == 0 ? "?" : ",?");
+                sql.append(')');
+                try (PreparedStatement ps = con.prepareStatement(sql.toString())) {
+                    for (int j = 0; j < chunk.size(); j++) ps.setInt(j + 1, chunk.get(j));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) names.put(rs.getInt("user_id"), rs.getString("name"));
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    /* Admin: change booking status — bookings are gathered from every shard, user names from the primary */
+    protected void changeBookingStatus(Scanner sc) {
+        Map<Integer, Integer> shardOfBooking = new HashMap<>();
+        Map<Integer, Integer> propertyOfBooking = new HashMap<>();
+        try {
+            List<Object[]> rows = ShardRouter.gather(
+                    "SELECT b.booking_id, b.user_id, b.property_id, p.name AS property, b.status " +
+                    "FROM booking b JOIN property p ON b.property_id=p.property_id ORDER BY b.booking_id",
+                    null,
+                    (shard, rs) -> new Object[]{rs.getInt("booking_id"), rs.getInt("user_id"),
+                            rs.getString("property"), rs.getString("status"), shard, rs.getInt("property_id")},
+                    (a, b) -> Integer.compare((Integer) a[0], (Integer) b[0]));
+            List<Integer> userIds = new ArrayList<>();
+            for (Object[] r : rows) userIds.add((Integer) r[1]);
+            Map<Integer, String> names = userNames(new HashSet<>(userIds));
+
+            System.out.println("\nBooking ID | User | Property | Status");
+            for (Object[] r : rows) {
+                String user = names.get((Integer) r[1]);
+                if (user == null) continue; // same as the inner join with user
+                shardOfBooking.put((Integer) r[0], (Integer) r[4]);
+                propertyOfBooking.put((Integer) r[0], (Integer) r[5]);
+                System.out.printf("%d | %s | %s | %s%n", r[0], user, r[2], r[3]);
+            }
+            if (shardOfBooking.isEmpty()) {
+                System.out.println("(No bookings found)");
+                return;
+            }
+        } catch (Exception ex) {
+            System.out.println("Error fetching bookings: " + ex.getMessage());
+            return;
+        }
+
+        try {
+            System.out.print("Enter Booking ID to update: ");
+            int bid = Integer.parseInt(sc.nextLine().trim());
+            System.out.print("Enter new status (Active / Cancelled / Completed): ");
+            String newStatus = sc.nextLine().trim();
+
+            if (!newStatus.equalsIgnoreCase("Active")
+                && !newStatus.equalsIgnoreCase("Cancelled")
+                && !newStatus.equalsIgnoreCase("Completed")) {
+                System.out.println("Invalid status.");
+                return;
+            }
+
+            Integer shard = shardOfBooking.get(bid);
+            int updated = 0;
+            if (shard != null) {
+                try (Connection con = ShardRouter.open(shard);
+                     PreparedStatement ps = con.prepareStatement("UPDATE booking SET status=? WHERE booking_id=?")) {
+                    ps.setString(1, newStatus);
+                    ps.setInt(2, bid);
+                    updated = ps.executeUpdate();
+                }
+            }
+            if (updated == 0) {
+                System.out.println("No booking found with that ID.");
+                return;
+            }
+            System.out.println("Booking status updated successfully!");
+            // An Available property that was blocked by this booking can now go to its waitlist
+            if (!newStatus.equalsIgnoreCase("Active")) {
+                try {
+                    Waitlist.promote(propertyOfBooking.get(bid));
+                } catch (Exception ex) {
+                    System.out.println("Waitlist offer failed: " + ex.getMessage());
+                }
+            }
+        } catch (Exception ex) {
+            System.out.println("Update failed: " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public void showMenu() {
+        Scanner sc = new Scanner(System.in);
+        while (true) {
+            System.out.println("\n==== Owner Menu ====");
+            System.out.println("1. Add Property");
+            System.out.println("2. View Properties");
+            System.out.println("3. Change Property Availability");
+            System.out.println("4. Delete Property");
+            System.out.println("5. Change Booking Status");
+            System.out.println("6. Reconcile Pending Payments");
+            System.out.println("7. Logout");
+            System.out.print("Choice: ");
+            String ch = sc.nextLine();
+            switch (ch) {
+                case "1": addProperty(sc); break;
+                case "2": viewProperties(); break;
+                case "3": changePropertyAvailability(sc); break;
+                case "4": deleteProperty(sc); break;
+                case "5": changeBookingStatus(sc); break;
+                case "6": Reconciliation.reconcile(sc); break;
+                case "7": return;
+                default: System.out.println("Invalid Option.");
+            }
+        }
+    }
+}
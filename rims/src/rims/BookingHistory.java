@@ -0,0 +1,255 @@
+package rims;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+
+//   BOOKING HISTORY CACHE
+// Per-user booking rows kept column-wise (parallel arrays sorted by booking_id). A refresh only
+// fetches rows whose updated_at is at or after the per-shard watermark (new bookings included), which
+// picks up owner-side status changes without re-reading the whole history. The watermark is lowered
+// by REFRESH_WINDOW_MILLIS because updated_at is stamped when a statement runs, not when it commits;
+// the window covers the longest booking transaction, which no longer waits on user input.
+// Users are evicted least-recently-used once the cache exceeds MAX_USERS users or MAX_ROWS rows.
+// Without the booking.updated_at column (rims/sql/booking_updated_at.sql) every refresh re-reads the
+// user's whole history; that is checked once per process.
+final class BookingHistory {
+    static final int MAX_USERS = 1_000;
+    static final int MAX_ROWS = 200_000;
+    static final long REFRESH_WINDOW_MILLIS = 5 * 60 * 1000L; // well past innodb_lock_wait_timeout
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    static final String REFRESH_SQL =
+            "SELECT b.booking_id, b.property_id, p.name, b.status, b.start_date, b.end_date, b.updated_at " +
+            "FROM booking b JOIN property p ON b.property_id=p.property_id " +
+            "WHERE b.user_id=? AND b.updated_at >= ?";
+    static final String FULL_SQL =
+            "SELECT b.booking_id, b.property_id, p.name, b.status, b.start_date, b.end_date " +
+            "FROM booking b JOIN property p ON b.property_id=p.property_id " +
+            "WHERE b.user_id=?";
+
+    // One user's bookings; callers only ever get the copies returned by refresh()
+    static final class Rows {
+        volatile int size;
+        int accounted; // rows counted in totalRows, guarded by the class lock
+        int[] bookingId = new int[8];
+        int[] propertyId = new int[8];
+        String[] property = new String[8];
+        String[] status = new String[8];
+        int[] startDay = new int[8];
+        int[] endDay = new int[8];
+        final Timestamp[] watermark = new Timestamp[ShardRouter.count()]; // per shard: clocks differ
+
+        Rows() {
+            Arrays.fill(watermark, new Timestamp(0L));
+        }
+
+        int indexOf(int bid) {
+            return Arrays.binarySearch(bookingId, 0, size, bid);
+        }
+
+        String start(int i) { return startDay[i] == NO_DATE ? "-" : LocalDate.ofEpochDay(startDay[i]).toString(); }
+        String end(int i) { return endDay[i] == NO_DATE ? "-" : LocalDate.ofEpochDay(endDay[i]).toString(); }
+
+        // Returns 1 when a row was added, 0 when an existing row was updated
+        private int upsert(int bid, int pid, String name, String st, int start, int end) {
+            int i = indexOf(bid);
+            int added = 0;
+            if (i < 0) {
+                i = -i - 1;
+                if (size == bookingId.length) grow();
+                shift(i);
+                size++;
+                added = 1;
+            }
+            bookingId[i] = bid;
+            propertyId[i] = pid;
+            property[i] = name;
+            status[i] = canonical(st);
+            startDay[i] = start;
+            endDay[i] = end;
+            return added;
+        }
+
+        private void grow() {
+            int n = bookingId.length * 2;
+            bookingId = Arrays.copyOf(bookingId, n);
+            propertyId = Arrays.copyOf(propertyId, n);
+            property = Arrays.copyOf(property, n);
+            status = Arrays.copyOf(status, n);
+            startDay = Arrays.copyOf(startDay, n);
+            endDay = Arrays.copyOf(endDay, n);
+        }
+
+        private void shift(int i) {
+            int len = size - i;
+            System.arraycopy(bookingId, i, bookingId, i + 1, len);
+            System.arraycopy(propertyId, i, propertyId, i + 1, len);
+            System.arraycopy(property, i, property, i + 1, len);
+            System.arraycopy(status, i, status, i + 1, len);
+            System.arraycopy(startDay, i, startDay, i + 1, len);
+            System.arraycopy(endDay, i, endDay, i + 1, len);
+        }
+
+        private Rows copy() {
+            Rows c = new Rows();
+            c.size = size;
+            c.bookingId = Arrays.copyOf(bookingId, size);
+            c.propertyId = Arrays.copyOf(propertyId, size);
+            c.property = Arrays.copyOf(property, size);
+            c.status = Arrays.copyOf(status, size);
+            c.startDay = Arrays.copyOf(startDay, size);
+            c.endDay = Arrays.copyOf(endDay, size);
+            return c;
+        }
+    }
+
+    private static final Map<Integer, Rows> CACHE = new LinkedHashMap<>(16, 0.75f, true); // access order = LRU
+    private static int totalRows;
+    private static final Object SCHEMA_CHECK = new Object();
+    private static volatile Boolean incremental; // null until every shard has been checked for updated_at
+
+    private BookingHistory() {}
+
+    // Share the status literals instead of keeping one String per row
+    private static String canonical(String s) {
+        if ("Active".equalsIgnoreCase(s)) return "Active";
+        if ("Cancelled".equalsIgnoreCase(s)) return "Cancelled";
+        if ("Completed".equalsIgnoreCase(s)) return "Completed";
+        return s;
+    }
+
+    // A booking row as fetched from one shard
+    private static final class Fetched {
+        final int shard, bookingId, propertyId, startDay, endDay;
+        final String property, status;
+        final Timestamp updatedAt;
+
+        Fetched(int shard, ResultSet rs, boolean stamped) throws SQLException {
+            this.shard = shard;
+            this.bookingId = rs.getInt("booking_id");
+            this.propertyId = rs.getInt("property_id");
+            this.property = rs.getString("name");
+            this.status = rs.getString("status");
+            Date s = rs.getDate("start_date");
+            Date e = rs.getDate("end_date");
+            this.startDay = s == null ? NO_DATE : (int) s.toLocalDate().toEpochDay();
+            this.endDay = e == null ? NO_DATE : (int) e.toLocalDate().toEpochDay();
+            this.updatedAt = stamped ? rs.getTimestamp("updated_at") : null;
+        }
+    }
+
+    private static Rows entry(int userId) {
+        synchronized (BookingHistory.class) {
+            Rows r = CACHE.get(userId);
+            if (r == null) {
+                r = new Rows();
+                CACHE.put(userId, r);
+            }
+            return r;
+        }
+    }
+
+    // Brings totalRows up to date for a grown entry and evicts least-recently-used users over the limits
+    private static void account(int userId, Rows r) {
+        synchronized (BookingHistory.class) {
+            if (CACHE.get(userId) != r) return; // evicted meanwhile
+            int n = r.size;
+            totalRows += n - r.accounted;
+            r.accounted = n;
+            Iterator<Rows> it = CACHE.values().iterator();
+            while ((CACHE.size() > MAX_USERS || totalRows > MAX_ROWS) && CACHE.size() > 1) {
+                Rows eldest = it.next();
+                if (eldest == r) continue; // never evict the user being served
+                totalRows -= eldest.accounted;
+                it.remove();
+            }
+        }
+    }
+
+    // True when every shard's booking table has updated_at; otherwise says so once and returns false
+    private static boolean incremental() throws Exception {
+        Boolean inc = incremental;
+        if (inc != null) return inc;
+        synchronized (SCHEMA_CHECK) {
+            if (incremental != null) return incremental;
+            for (int shard = 0; shard < ShardRouter.count(); shard++) {
+                try (Connection con = ShardRouter.open(shard);
+                     ResultSet rs = con.getMetaData().getColumns(con.getCatalog(), null, "booking", "updated_at")) {
+                    if (!rs.next()) {
+                        System.out.println("Note: booking.updated_at is missing" + (ShardRouter.sharded() ? " on shard " + shard : "")
+                                + "; booking history is re-read in full on every view. Apply rims/sql/booking_updated_at.sql to fix.");
+                        incremental = false;
+                        return false;
+                    }
+                }
+            }
+            incremental = true;
+            return true;
+        }
+    }
+
+    // Pulls new and modified rows for the user from every shard, then returns a private copy of their history
+    static Rows refresh(int userId) throws Exception {
+        Rows r = entry(userId);
+        int added = 0;
+        Rows snapshot;
+        boolean inc = incremental();
+        synchronized (r) {
+            List<Fetched> fetched = ShardRouter.gather(
+                    inc ? REFRESH_SQL : FULL_SQL,
+                    (shard, ps) -> {
+                        ps.setInt(1, userId);
+                        if (inc) ps.setTimestamp(2, new Timestamp(Math.max(0L, r.watermark[shard].getTime() - REFRESH_WINDOW_MILLIS)));
+                    },
+                    (shard, rs) -> new Fetched(shard, rs, inc), null);
+            for (Fetched f : fetched) {
+                added += r.upsert(f.bookingId, f.propertyId, f.property, f.status, f.startDay, f.endDay);
+                if (f.updatedAt != null && f.updatedAt.after(r.watermark[f.shard])) r.watermark[f.shard] = f.updatedAt;
+            }
+            snapshot = r.copy();
+        }
+        if (added > 0) account(userId, r);
+        return snapshot;
+    }
+
+    // Starts loading a user's history in the background right after login
+    static void warm(int userId) {
+        CompletableFuture.runAsync(() -> {
+            try {
+                refresh(userId);
+            } catch (Exception ignored) {
+                // the first view retries and reports the error
+            }
+        });
+    }
+
+    // In-place update after the user's own committed booking; the next refresh re-reads it anyway
+    static void added(int userId, int bid, int pid, String name, LocalDate start, LocalDate end) {
+        Rows r;
+        synchronized (BookingHistory.class) { r = CACHE.get(userId); }
+        if (r == null) return;
+        int added;
+        synchronized (r) {
+            added = r.upsert(bid, pid, name, "Active", (int) start.toEpochDay(), (int) end.toEpochDay());
+        }
+        if (added > 0) account(userId, r);
+    }
+
+    // In-place status change after the user's own committed cancellation
+    static void statusChanged(int userId, int bid, String status) {
+        Rows r;
+        synchronized (BookingHistory.class) { r = CACHE.get(userId); }
+        if (r == null) return;
+        synchronized (r) {
+            int i = r.indexOf(bid);
+            if (i >= 0) r.status[i] = canonical(status);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package rims;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+
+//   FAST START
+// Enabled with "--fast-start" (or -Drims.fastStart=true). While the welcome menu is on screen a
+// background thread registers the driver and opens POOL_SIZE connections to the primary and to every
+// shard, with the driver's prepared-statement cache switched on (server-side prepares, kept on close).
+// Each pooled connection prepares the hot statements once, and the first one per database also runs
+// them, so the statements, the driver classes, the JIT and the server's caches are warm by the time
+// the user picks an option. Connections handed out by Admin.connectTo() then go back to a small idle
+// pool per database on close() instead of being torn down, keeping their prepared statements.
+final class FastStart {
+    static final int POOL_SIZE = Integer.getInteger("rims.pool.size", 4);
+    private static final long REVALIDATE_MILLIS = 30_000L;
+
+    private interface Bind {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    // A hot statement: the exact SQL the app uses, with parameters that match nothing
+    private static final class Hot {
+        final String sql;
+        final boolean primaryOnly;
+        final Bind bind;
+
+        Hot(String sql, boolean primaryOnly, Bind bind) {
+            this.sql = sql;
+            this.primaryOnly = primaryOnly;
+            this.bind = bind;
+        }
+    }
+
+    private static final Hot[] HOT = {
+        new Hot(Admin.ALL_PROPERTIES_SQL, false, ps -> { }),
+        new Hot(RegisteredUser.AVAILABLE_PROPERTIES_SQL, false, ps -> { }),
+        new Hot(RegisteredUser.PROPERTY_FOR_BOOKING_SQL, false, ps -> ps.setInt(1, -1)),
+        new Hot(Waitlist.NEXT_IN_LINE_SQL, false, ps -> {
+            ps.setInt(1, -1);
+            ps.setTimestamp(2, new Timestamp(0L));
+        }),
+        new Hot(BookingHistory.REFRESH_SQL, false, ps -> {
+            ps.setInt(1, -1);
+            ps.setTimestamp(2, new Timestamp(0L));
+        }),
+        new Hot(Main.USER_LOGIN_SQL, true, ps -> {
+            ps.setString(1, "");
+            ps.setString(2, "");
+        })
+    };
+
+    private static final class Idle {
+        final Connection con;
+        final long since;
+
+        Idle(Connection con, long since) {
+            this.con = con;
+            this.since = since;
+        }
+    }
+
+    private static final Map<String, BlockingQueue<Idle>> IDLE = new ConcurrentHashMap<>(); // per JDBC URL
+    private static volatile boolean enabled;
+
+    private FastStart() {}
+
+    static boolean enabled() {
+        return enabled;
+    }
+
+    // Called from Main before the welcome menu is printed
+    static void begin() {
+        enabled = true;
+        Thread t = new Thread(FastStart::prewarm, "rims-fast-start");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static BlockingQueue<Idle> idle(String url) {
+        return IDLE.computeIfAbsent(url, k -> new LinkedBlockingQueue<>());
+    }
+
+    private static void prewarm() {
+        try {
+            Admin.loadDriver();
+        } catch (Exception ex) {
+            return; // not fatal: connectTo() reports the error on first use
+        }
+        List<String> urls = ShardRouter.urls();
+        for (int shard = 0; shard < urls.size(); shard++) {
+            String url = urls.get(shard);
+            try {
+                for (int i = 0; i < POOL_SIZE; i++) {
+                    Connection con = open(url);
+                    warmUp(con, shard == 0, i == 0);
+                    release(url, con);
+                }
+            } catch (Exception ex) {
+                // Not fatal: connectTo() falls back to opening connections on demand and reports errors there
+            }
+        }
+    }
+
+    // Opens a connection with the driver's statement cache on, so closed statements stay prepared
+    static Connection open(String url) throws SQLException {
+        Properties props = Admin.connectionProperties(url);
+        if (url.startsWith("jdbc:mysql:")) {
+            props.setProperty("useServerPrepStmts", "true");
+            props.setProperty("cachePrepStmts", "true");
+            props.setProperty("prepStmtCacheSize", "64");
+            props.setProperty("prepStmtCacheSqlLimit", "2048");
+        }
+        return DriverManager.getConnection(url, props);
+    }
+
+    // Prepares (and on the first connection per database also runs) every hot statement
+    private static void warmUp(Connection con, boolean primary, boolean execute) {
+        for (Hot h : HOT) {
+            if (h.primaryOnly && !primary) continue;
+            try (PreparedStatement ps = con.prepareStatement(h.sql)) {
+                if (!execute) continue;
+                h.bind.bind(ps);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) rs.getObject(1);
+                }
+            } catch (SQLException ex) {
+                // e.g. waitlist not created yet on this database; the rest still gets warmed
+            }
+        }
+    }
+
+    // Takes an idle connection to the database if there is one (re-checking those idle for a while), else null
+    static Connection borrow(String url) {
+        BlockingQueue<Idle> pool = idle(url);
+        Idle idle;
+        while ((idle = pool.poll()) != null) {
+            try {
+                boolean stale = System.currentTimeMillis() - idle.since > REVALIDATE_MILLIS;
+                if (!idle.con.isClosed() && (!stale || idle.con.isValid(1))) return pooled(url, idle.con);
+                idle.con.close();
+            } catch (SQLException ignored) {
+                // dropped; try the next one
+            }
+        }
+        return null;
+    }
+
+    // Wraps a fresh connection so that close() returns it to the database's pool
+    static Connection pooled(String url, Connection con) {
+        boolean[] returned = {false};
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!returned[0]) {
+                                returned[0] = true;
+                                release(url, con);
+                            }
+                            return null;
+                        case "isClosed":
+                            return returned[0] || con.isClosed();
+                        case "unwrap":
+                            if (((Class<?>) args[0]).isInstance(con)) return con;
+                            break;
+                        default:
+                            if (returned[0] && !method.getName().equals("hashCode") && !method.getName().equals("equals"))
+                                throw new SQLException("Connection is closed.");
+                    }
+                    try {
+                        return method.invoke(con, args);
+                    } catch (InvocationTargetException ite) {
+                        throw ite.getCause();
+                    }
+                });
+    }
+
+    // Resets transaction state and parks the connection, or closes it when the pool is full
+    private static void release(String url, Connection con) {
+        try {
+            if (con.isClosed()) return;
+            if (!con.getAutoCommit()) {
+                con.rollback();
+                con.setAutoCommit(true);
+            }
+            BlockingQueue<Idle> pool = idle(url);
+            if (pool.size() < POOL_SIZE && pool.offer(new Idle(con, System.currentTimeMillis()))) return;
+            con.close();
+        } catch (SQLException ex) {
+            try { con.close(); } catch (SQLException ignored) { }
+        }
+    }
+}
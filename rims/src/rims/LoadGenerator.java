@@ -0,0 +1,408 @@
+package rims;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+
+//   LOAD GENERATOR
+// Drives the real Owner/User/Looker operations with scripted Scanner input, at an open-loop
+// (Poisson) arrival rate on a worker pool. The trace is a pure function of the seed, so a run can
+// be recorded to a file and replayed exactly. Console output of each operation is captured per
+// thread and used to classify the outcome; latency is measured from the scheduled arrival time.
+//
+//   java -Drims.db.url=<scratch db> rims.LoadGenerator seed=42 rate=200 duration=60 threads=32 \
+//        mix=browse:80,book:10,cancel:5,owner:5 users=200 properties=100 setup=true record=run.trace
+final class LoadGenerator {
+
+    // Tables used by the application, for seeding an empty scratch database
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS admin (admin_id INT AUTO_INCREMENT PRIMARY KEY, username VARCHAR(50) UNIQUE NOT NULL, password VARCHAR(100) NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS user (user_id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100), email VARCHAR(100) UNIQUE NOT NULL, password VARCHAR(100) NOT NULL, phone VARCHAR(10))",
+        "CREATE TABLE IF NOT EXISTS property (property_id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100), type VARCHAR(20), location VARCHAR(100), price_per_month DECIMAL(10,2), availability_status VARCHAR(20) DEFAULT 'Available', sharing INT NULL)",
+        "CREATE TABLE IF NOT EXISTS booking (booking_id INT AUTO_INCREMENT PRIMARY KEY, user_id INT NOT NULL, property_id INT NOT NULL, start_date DATE, end_date DATE, status VARCHAR(20), updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3), INDEX idx_booking_user_updated (user_id, updated_at), FOREIGN KEY (user_id) REFERENCES user(user_id), FOREIGN KEY (property_id) REFERENCES property(property_id))",
+        "CREATE TABLE IF NOT EXISTS resident (resident_id INT AUTO_INCREMENT PRIMARY KEY, user_id INT NOT NULL, property_id INT NOT NULL, FOREIGN KEY (user_id) REFERENCES user(user_id), FOREIGN KEY (property_id) REFERENCES property(property_id))",
+        "CREATE TABLE IF NOT EXISTS payment (payment_id INT AUTO_INCREMENT PRIMARY KEY, booking_id INT NOT NULL, amount DECIMAL(10,2), method VARCHAR(20), status VARCHAR(20), date DATE, FOREIGN KEY (booking_id) REFERENCES booking(booking_id))"
+    };
+
+    private static final String[] OPS = {"browse", "book", "cancel", "owner", "look"};
+
+    // One scheduled arrival; user and property are indexes into the seeded rows
+    static final class Event {
+        public final long offsetMicros;
+        public final String op;
+        public final int user;
+        public final int property;
+
+        Event(long offsetMicros, String op, int user, int property) {
+            this.offsetMicros = offsetMicros;
+            this.op = op;
+            this.user = user;
+            this.property = property;
+        }
+
+        String toLine() { return offsetMicros + "," + op + "," + user + "," + property; }
+
+        static Event parse(String line) {
+            String[] f = line.split(",");
+            return new Event(Long.parseLong(f[0]), f[1], Integer.parseInt(f[2]), Integer.parseInt(f[3]));
+        }
+    }
+
+    // Routes System.out writes from worker threads into a per-thread buffer
+    private static final class CapturingStream extends OutputStream {
+        final PrintStream console;
+        final ThreadLocal<ByteArrayOutputStream> buffer = new ThreadLocal<>();
+
+        CapturingStream(PrintStream console) { this.console = console; }
+
+        @Override
+        public void write(int b) {
+            ByteArrayOutputStream out = buffer.get();
+            if (out != null) out.write(b);
+            else console.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ByteArrayOutputStream out = buffer.get();
+            if (out != null) out.write(b, off, len);
+            else console.write(b, off, len);
+        }
+    }
+
+    private final Map<String, String> opts;
+    private final long seed;
+    private final Map<String, List<Long>> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final List<Integer> userIds = new ArrayList<>();
+    private final List<Integer> propertyIds = new ArrayList<>();
+
+    LoadGenerator(Map<String, String> opts) {
+        this.opts = opts;
+        this.seed = Long.parseLong(opts.getOrDefault("seed", "42"));
+    }
+
+    private int intOpt(String key, int def) {
+        return Integer.parseInt(opts.getOrDefault(key, String.valueOf(def)));
+    }
+
+    // --- seeding ---
+
+    // Safe to repeat: existing load-test users and properties are kept, only missing ones are added
+    private void setup() throws Exception {
+        int users = intOpt("users", 200);
+        int properties = intOpt("properties", 100);
+        Random rnd = new Random(seed);
+        String[] cities = {"Bengaluru", "Chennai", "Hyderabad", "Mumbai", "Pune", "Delhi"};
+        String[] types = {"PG", "Apartment", "House"};
+        try (Connection con = Admin.connect()) {
+            try (Statement st = con.createStatement()) {
+                for (String ddl : SCHEMA) st.executeUpdate(ddl);
+            }
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(
+                    "INSERT IGNORE INTO user(name,email,password,phone) VALUES (?,?,?,?)")) {
+                for (int i = 0; i < users; i++) {
+                    ps.setString(1, "Load User " + i);
+                    ps.setString(2, "loadgen-" + i + "@rims.test");
+                    ps.setString(3, "loadgen");
+                    ps.setString(4, String.format("9%09d", i));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            con.commit();
+            con.setAutoCommit(true);
+        }
+        ShardRouter.initShards();
+
+        Set<String> existing = new HashSet<>(ShardRouter.gather(
+                "SELECT name FROM property WHERE name LIKE 'LoadGen Property %'", null, (shard, rs) -> rs.getString(1), null));
+        // Properties go to the shard their city maps to, one batch per shard
+        Map<Integer, List<Object[]>> byShard = new TreeMap<>();
+        for (int i = 0; i < properties; i++) {
+            String type = types[rnd.nextInt(types.length)];
+            String city = cities[rnd.nextInt(cities.length)];
+            Object[] row = {"LoadGen Property " + i, type, city, 5000 + rnd.nextInt(45000),
+                    "PG".equals(type) ? 1 + rnd.nextInt(4) : null};
+            if (existing.contains((String) row[0])) continue;
+            byShard.computeIfAbsent(ShardRouter.shardForLocation(city), k -> new ArrayList<>()).add(row);
+        }
+        for (Map.Entry<Integer, List<Object[]>> e : byShard.entrySet()) {
+            List<Integer> ids = new ArrayList<>();
+            try (Connection con = ShardRouter.open(e.getKey());
+                 PreparedStatement ps = con.prepareStatement(
+                         "INSERT INTO property (name, type, location, price_per_month, availability_status, sharing) VALUES (?,?,?,?,?,?)",
+                         Statement.RETURN_GENERATED_KEYS)) {
+                con.setAutoCommit(false);
+                for (Object[] row : e.getValue()) {
+                    ps.setString(1, (String) row[0]);
+                    ps.setString(2, (String) row[1]);
+                    ps.setString(3, (String) row[2]);
+                    ps.setDouble(4, (Integer) row[3]);
+                    ps.setString(5, "Available");
+                    if (row[4] != null) ps.setInt(6, (Integer) row[4]);
+                    else ps.setNull(6, Types.INTEGER);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) ids.add(keys.getInt(1));
+                }
+                con.commit();
+                con.setAutoCommit(true);
+            }
+            for (int id : ids) ShardRouter.placed(id, e.getKey());
+        }
+    }
+
+    private void loadIds() throws Exception {
+        try (Connection con = Admin.connect();
+             Statement st = con.createStatement()) {
+            try (ResultSet rs = st.executeQuery("SELECT user_id FROM user WHERE email LIKE 'loadgen-%' ORDER BY user_id")) {
+                while (rs.next()) userIds.add(rs.getInt(1));
+            }
+        }
+        propertyIds.addAll(ShardRouter.gather(
+                "SELECT property_id FROM property WHERE name LIKE 'LoadGen Property %' ORDER BY property_id", null,
+                (shard, rs) -> rs.getInt(1), Integer::compare));
+        if (userIds.isEmpty() || propertyIds.isEmpty())
+            throw new IllegalStateException("No seeded load-test rows found; run once with setup=true.");
+    }
+
+    // --- traces ---
+
+    // Builds the arrival schedule from the seed: exponential inter-arrival times, op chosen by weight
+    private List<Event> generate() {
+        double rate = Double.parseDouble(opts.getOrDefault("rate", "100"));
+        long durationMicros = TimeUnit.SECONDS.toMicros(intOpt("duration", 30));
+        Map<String, Integer> mix = parseMix(opts.getOrDefault("mix", "browse:80,book:10,cancel:5,owner:5"));
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+
+        Random rnd = new Random(seed);
+        List<Event> events = new ArrayList<>();
+        long t = 0;
+        while (true) {
+            t += (long) (-Math.log(1.0 - rnd.nextDouble()) / rate * 1_000_000);
+            if (t >= durationMicros) break;
+            int pick = rnd.nextInt(total);
+            String op = null;
+            for (Map.Entry<String, Integer> e : mix.entrySet()) {
+                pick -= e.getValue();
+                if (pick < 0) { op = e.getKey(); break; }
+            }
+            // Indexes are drawn from a fixed range (execute() reduces them) so the trace depends on the seed alone
+            events.add(new Event(t, op, rnd.nextInt(Integer.MAX_VALUE), rnd.nextInt(Integer.MAX_VALUE)));
+        }
+        return events;
+    }
+
+    private static Map<String, Integer> parseMix(String spec) {
+        Map<String, Integer> mix = new TreeMap<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.split(":");
+            if (!List.of(OPS).contains(kv[0])) throw new IllegalArgumentException("Unknown op in mix: " + kv[0]);
+            mix.put(kv[0], Integer.parseInt(kv[1]));
+        }
+        return mix;
+    }
+
+    private List<Event> replay(String file) throws IOException {
+        List<Event> events = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+            if (!line.isBlank() && !line.startsWith("#")) events.add(Event.parse(line));
+        }
+        return events;
+    }
+
+    private void record(String file, List<Event> events) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# seed=" + seed + " " + new TreeMap<>(opts));
+        for (Event e : events) lines.add(e.toLine());
+        Files.write(Paths.get(file), lines, StandardCharsets.UTF_8);
+    }
+
+    // --- execution ---
+
+    private void execute(Event e) throws Exception {
+        int uid = userIds.get(e.user % userIds.size());
+        int pid = propertyIds.get(e.property % propertyIds.size());
+        switch (e.op) {
+            case "browse":
+                new RegisteredUser(uid).viewProperties();
+                break;
+            case "look":
+                new Sightseer().viewProperties();
+                break;
+            case "book": {
+                LocalDate start = LocalDate.now().plusDays(1 + (e.offsetMicros % 30));
+                new RegisteredUser(uid).bookProperty(script(pid, start, start.plusDays(30), "Cash", "n"));
+                break;
+            }
+            case "cancel": {
+                int bid = scalar("SELECT MAX(booking_id) FROM booking WHERE user_id=? AND status='Active'", uid);
+                if (bid <= 0) { System.out.println("Skipped: no active booking."); return; }
+                new RegisteredUser(uid).cancelBooking(script(bid));
+                break;
+            }
+            case "owner": {
+                String status = currentStatus(pid);
+                if (status == null || status.equalsIgnoreCase("Booked")) { System.out.println("Skipped: property booked."); return; }
+                String next = status.equalsIgnoreCase("Available") ? "Not Available" : "Available";
+                new Admin().changePropertyAvailability(script(pid, next));
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown op: " + e.op);
+        }
+    }
+
+    static Scanner script(Object... lines) {
+        StringBuilder sb = new StringBuilder();
+        for (Object l : lines) sb.append(l).append('\n');
+        return new Scanner(sb.toString());
+    }
+
+    // Largest value of a single-column aggregate across all shards
+    private static int scalar(String sql, int arg) throws Exception {
+        int max = 0;
+        for (int v : ShardRouter.gather(sql, (shard, ps) -> ps.setInt(1, arg), (shard, rs) -> rs.getInt(1), null))
+            max = Math.max(max, v);
+        return max;
+    }
+
+    private static String currentStatus(int pid) throws Exception {
+        try (Connection con = Admin.connect(pid);
+             PreparedStatement ps = con.prepareStatement("SELECT availability_status FROM property WHERE property_id=?")) {
+            ps.setInt(1, pid);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    // Maps the operation's console output to an outcome bucket
+    private static String classify(String op, String out) {
+        if (out.contains("Skipped:")) return op + ":skipped";
+        if (out.contains("Property not available.") || out.contains("no longer available") || out.contains("on hold"))
+            return op + ":unavailable";
+        for (String line : out.split("\n")) {
+            if (line.contains("failed") || line.contains("Error") || line.contains("Invalid")) {
+                int colon = line.indexOf(':');
+                return op + ":error:" + (colon > 0 ? line.substring(0, colon) : line).trim();
+            }
+        }
+        return op + ":ok";
+    }
+
+    private void run() throws Exception {
+        if (Boolean.parseBoolean(opts.getOrDefault("setup", "false"))) setup();
+        loadIds();
+
+        List<Event> events = opts.containsKey("replay") ? replay(opts.get("replay")) : generate();
+        if (opts.containsKey("record")) record(opts.get("record"), events);
+
+        PrintStream console = System.out;
+        CapturingStream capture = new CapturingStream(console);
+        System.setOut(new PrintStream(capture, true, StandardCharsets.UTF_8));
+        ExecutorService pool = Executors.newFixedThreadPool(intOpt("threads", 32));
+        long begin = System.nanoTime();
+        try {
+            for (Event e : events) {
+                long due = begin + TimeUnit.MICROSECONDS.toNanos(e.offsetMicros);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) LockSupport.parkNanos(wait);
+                pool.execute(() -> {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    capture.buffer.set(out);
+                    String outcome;
+                    try {
+                        execute(e);
+                        outcome = classify(e.op, out.toString(StandardCharsets.UTF_8));
+                    } catch (Exception ex) {
+                        outcome = e.op + ":exception:" + ex.getClass().getSimpleName();
+                    } finally {
+                        capture.buffer.remove();
+                    }
+                    // Measured from the scheduled arrival, so queueing delay counts (no coordinated omission)
+                    latencies.computeIfAbsent(e.op, k -> Collections.synchronizedList(new ArrayList<>()))
+                            .add(System.nanoTime() - due);
+                    outcomes.computeIfAbsent(outcome, k -> new LongAdder()).increment();
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.HOURS);
+        } finally {
+            System.setOut(console);
+        }
+        report(events.size(), System.nanoTime() - begin);
+    }
+
+    private void report(int count, long elapsedNanos) throws Exception {
+        double secs = elapsedNanos / 1e9;
+        System.out.printf("%nRequests: %d in %.1fs | Throughput: %.1f ops/s%n", count, secs, count / secs);
+        System.out.println("\nOp | Count | p50 ms | p90 ms | p99 ms | Max ms");
+        for (String op : new TreeMap<>(latencies).keySet()) {
+            List<Long> l;
+            synchronized (latencies.get(op)) { l = new ArrayList<>(latencies.get(op)); }
+            Collections.sort(l);
+            System.out.printf("%s | %d | %.1f | %.1f | %.1f | %.1f%n", op, l.size(),
+                    pct(l, 0.50), pct(l, 0.90), pct(l, 0.99), l.get(l.size() - 1) / 1e6);
+        }
+        System.out.println("\nOutcome | Count");
+        Map<String, Long> sorted = new TreeMap<>();
+        outcomes.forEach((k, v) -> sorted.put(k, v.sum()));
+        sorted.forEach((k, v) -> System.out.println(k + " | " + v));
+
+        // A property must never carry more than one Active booking
+        Map<Integer, Integer> doubles = new HashMap<>();
+        for (int[] d : ShardRouter.gather(
+                "SELECT property_id, COUNT(*) FROM booking WHERE status='Active' GROUP BY property_id HAVING COUNT(*) > 1", null,
+                (shard, rs) -> new int[]{rs.getInt(1), rs.getInt(2)}, null)) {
+            doubles.merge(d[0], d[1], Integer::sum);
+        }
+        if (doubles.isEmpty()) System.out.println("\nDouble-booking check: OK");
+        else System.out.println("\nDouble-booking check: FAILED " + doubles + " (property_id=active bookings)");
+    }
+
+    private static double pct(List<Long> sorted, double p) {
+        int i = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, i)) / 1e6;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq <= 0) {
+                System.out.println("Arguments are key=value: seed rate duration threads mix users properties setup record replay");
+                return;
+            }
+            opts.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+        new LoadGenerator(opts).run();
+    }
+}
@@ -0,0 +1,23 @@
+package rims;
+
+
+   //Generic Utility
+class OperationResult<T> {
+    public final boolean success;
+    public final String message;
+    public final T data;
+
+    public OperationResult(boolean success, String message, T data) {
+        this.success = success;
+        this.message = message;
+        this.data = data;
+    }
+
+    public static <T> OperationResult<T> ok(T data, String msg) {
+        return new OperationResult<>(true, msg, data);
+    }
+
+    public static <T> OperationResult<T> fail(String msg) {
+        return new OperationResult<>(false, msg, null);
+    }
+}
@@ -0,0 +1,312 @@
+package rims;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+//   PAYMENT RECONCILIATION
+// Matches 'Pending' payments against a provider settlement statement (CSV: booking_id,amount[,reference]).
+// Every shard's payment table is split into fixed payment_id ranges that a worker pool processes in parallel;
+// each range commits its status updates as one JDBC batch and is then appended to the checkpoint file,
+// so an interrupted run resumes at the first unfinished range. The checkpoint is tied to the statement
+// content and deleted once a run completes, so the next run (new payments, re-issued file) rescans
+// everything. Re-running a range is harmless: the update is guarded by status='Pending' and payments
+// already marked Paid are no longer scanned.
+final class Reconciliation {
+    static final int RANGE_SIZE = 10_000;
+
+    // One line of the provider statement
+    private static final class Settlement {
+        final int bookingId;
+        final BigDecimal amount;
+        final String reference;
+
+        Settlement(int bookingId, BigDecimal amount, String reference) {
+            this.bookingId = bookingId;
+            this.amount = amount;
+            this.reference = reference;
+        }
+    }
+
+    // Totals printed at the end of a run
+    static final class Summary {
+        public final AtomicInteger scanned = new AtomicInteger();
+        public final AtomicInteger settled = new AtomicInteger();
+        public final AtomicInteger mismatched = new AtomicInteger();
+        public final AtomicInteger orphans = new AtomicInteger();
+        public final AtomicInteger unsettled = new AtomicInteger();
+        public final AtomicInteger skippedRanges = new AtomicInteger();
+        public final AtomicInteger unmatchedSettlements = new AtomicInteger();
+
+        @Override
+        public String toString() {
+            return String.format("Scanned: %d | Settled: %d | Amount mismatches: %d | Orphan payments: %d | " +
+                            "Still pending: %d | Unmatched settlements: %d | Ranges resumed past: %d",
+                    scanned.get(), settled.get(), mismatched.get(), orphans.get(),
+                    unsettled.get(), unmatchedSettlements.get(), skippedRanges.get());
+        }
+    }
+
+    private final Map<Integer, Settlement> statement = new ConcurrentHashMap<>();
+    private final Set<String> done = ConcurrentHashMap.newKeySet(); // "<shard>:<first payment_id>"
+    private final Path checkpoint;
+    private final String header;
+    private final Path issues;
+    private final int workers;
+    private final Summary summary = new Summary();
+
+    Reconciliation(Path statementFile, Path checkpoint, Path issues, int workers) throws IOException {
+        this.checkpoint = checkpoint;
+        this.issues = issues;
+        this.workers = Math.max(1, workers);
+        this.header = "range_size=" + RANGE_SIZE + " statement_sha256=" + sha256(statementFile);
+        boolean resumed = loadCheckpoint();
+        loadStatement(statementFile, !resumed); // a resumed run already reported the statement's own problems
+    }
+
+    private static String sha256(Path file) throws IOException {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            StringBuilder hex = new StringBuilder();
+            for (byte b : md.digest(Files.readAllBytes(file))) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    private static BigDecimal money(BigDecimal v) {
+        return v.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private void loadStatement(Path file, boolean report) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                line = line.trim();
+                if (line.isEmpty() || !Character.isDigit(line.charAt(0))) continue; // header / blank
+                String[] f = line.split(",");
+                try {
+                    int bid = Integer.parseInt(f[0].trim());
+                    BigDecimal amt = money(new BigDecimal(f[1].trim()));
+                    String ref = f.length > 2 ? f[2].trim() : "";
+                    if (statement.putIfAbsent(bid, new Settlement(bid, amt, ref)) != null && report)
+                        flag("DUPLICATE_SETTLEMENT", -1, bid, "statement line " + lineNo);
+                } catch (RuntimeException bad) {
+                    if (report) flag("BAD_STATEMENT_LINE", -1, -1, "line " + lineNo + ": " + line);
+                }
+            }
+        }
+    }
+
+    // Checkpoint format: "range_size=<n> statement_sha256=<hash>" header, then "<shard>:<first payment_id>"
+    // of every finished range. Returns true when resuming an interrupted run over the same statement;
+    // otherwise starts a new checkpoint and a new issues file.
+    private boolean loadCheckpoint() throws IOException {
+        if (Files.exists(checkpoint)) {
+            List<String> lines = Files.readAllLines(checkpoint, StandardCharsets.UTF_8);
+            if (!lines.isEmpty() && lines.get(0).equals(header)) {
+                for (String l : lines.subList(1, lines.size())) {
+                    if (!l.isBlank()) done.add(l.trim());
+                }
+                return true;
+            }
+            System.out.println("Checkpoint " + checkpoint + " belongs to another statement or range size; starting over.");
+        }
+        Files.write(checkpoint, List.of(header), StandardCharsets.UTF_8);
+        Files.deleteIfExists(issues);
+        return false;
+    }
+
+    private synchronized void markDone(String range) throws IOException {
+        Files.write(checkpoint, List.of(range), StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+        done.add(range);
+    }
+
+    private synchronized void flag(String kind, int paymentId, int bookingId, String detail) {
+        try (BufferedWriter w = Files.newBufferedWriter(issues, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            w.write(kind + "," + paymentId + "," + bookingId + "," + detail.replace(',', ';'));
+            w.newLine();
+        } catch (IOException ex) {
+            System.out.println("Could not write reconciliation issue: " + ex.getMessage());
+        }
+    }
+
+    Summary run() throws Exception {
+        // {shard, min, max} for every shard with payments
+        List<long[]> bounds = ShardRouter.gather("SELECT MIN(payment_id), MAX(payment_id) FROM payment", null,
+                (shard, rs) -> {
+                    long min = rs.getLong(1);
+                    long max = rs.getLong(2);
+                    return rs.wasNull() ? null : new long[]{shard, min, max};
+                }, null);
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> jobs = new ArrayList<>();
+            for (long[] b : bounds) {
+                if (b == null) continue; // empty table
+                final int shard = (int) b[0];
+                for (long start = b[1] - Math.floorMod(b[1], RANGE_SIZE); start <= b[2]; start += RANGE_SIZE) {
+                    if (done.contains(shard + ":" + start)) {
+                        summary.skippedRanges.incrementAndGet();
+                        continue;
+                    }
+                    final long from = start;
+                    jobs.add(pool.submit(() -> { reconcileRange(shard, from, from + RANGE_SIZE - 1); return null; }));
+                }
+            }
+            Exception first = null;
+            for (Future<?> f : jobs) {
+                try {
+                    f.get();
+                } catch (Exception ex) {
+                    if (first == null) first = ex;
+                }
+            }
+            if (first != null) throw new Exception("Reconciliation stopped; re-run to resume. Cause: " + first.getMessage(), first);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        reportUnmatchedSettlements();
+        Files.deleteIfExists(checkpoint); // complete: the next run starts from scratch
+        return summary;
+    }
+
+    private void reconcileRange(int shard, long from, long to) throws Exception {
+        List<Settlement> claimed = new ArrayList<>();
+        try (Connection con = ShardRouter.open(shard)) {
+            con.setAutoCommit(false);
+            try (PreparedStatement scan = con.prepareStatement(
+                         "SELECT p.payment_id, p.booking_id, p.amount, b.booking_id AS b_id " +
+                         "FROM payment p LEFT JOIN booking b ON p.booking_id=b.booking_id " +
+                         "WHERE p.payment_id BETWEEN ? AND ? AND p.status='Pending'");
+                 PreparedStatement upd = con.prepareStatement(
+                         "UPDATE payment SET status='Paid' WHERE payment_id=? AND status='Pending'")) {
+                scan.setLong(1, from);
+                scan.setLong(2, to);
+                int batched = 0;
+                try (ResultSet rs = scan.executeQuery()) {
+                    while (rs.next()) {
+                        summary.scanned.incrementAndGet();
+                        int payId = rs.getInt("payment_id");
+                        int bid = rs.getInt("booking_id");
+                        rs.getInt("b_id");
+                        if (rs.wasNull()) {
+                            summary.orphans.incrementAndGet();
+                            flag("ORPHAN_PAYMENT", payId, bid, "booking does not exist");
+                            continue;
+                        }
+                        // remove() claims the settlement so two payments can't both consume it
+                        Settlement s = statement.remove(bid);
+                        if (s == null) {
+                            summary.unsettled.incrementAndGet();
+                            continue;
+                        }
+                        claimed.add(s);
+                        BigDecimal amount = money(rs.getBigDecimal("amount"));
+                        if (amount.compareTo(s.amount) != 0) {
+                            summary.mismatched.incrementAndGet();
+                            flag("AMOUNT_MISMATCH", payId, bid, "recorded " + amount + " settled " + s.amount + " ref " + s.reference);
+                            continue;
+                        }
+                        upd.setInt(1, payId);
+                        upd.addBatch();
+                        batched++;
+                    }
+                }
+                if (batched > 0) {
+                    for (int n : upd.executeBatch()) {
+                        if (n > 0 || n == Statement.SUCCESS_NO_INFO) summary.settled.incrementAndGet();
+                    }
+                }
+                con.commit();
+            } catch (Exception ex) {
+                con.rollback();
+                for (Settlement s : claimed) statement.putIfAbsent(s.bookingId, s); // let a retry claim them again
+                throw ex;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+        markDone(shard + ":" + from);
+    }
+
+    // Statement lines never claimed: flag the ones whose booking has no payment row on any shard
+    private void reportUnmatchedSettlements() throws Exception {
+        List<Integer> left = new ArrayList<>(statement.keySet());
+        for (int i = 0; i < left.size(); i += 500) {
+            List<Integer> chunk = left.subList(i, Math.min(left.size(), i + 500));
+            StringBuilder sql = new StringBuilder("SELECT DISTINCT booking_id FROM payment WHERE booking_id IN (");
+            for (int j = 0; j < chunk.size(); j++) sql.append(j == 0 ? "?" : ",?");
+            sql.append(')');
+            Set<Integer> known = new HashSet<>(ShardRouter.gather(sql.toString(),
+                    (shard, ps) -> { for (int j = 0; j < chunk.size(); j++) ps.setInt(j + 1, chunk.get(j)); },
+                    (shard, rs) -> rs.getInt(1), null));
+            for (int bid : chunk) {
+                if (known.contains(bid)) continue;
+                summary.unmatchedSettlements.incrementAndGet();
+                flag("ORPHAN_SETTLEMENT", -1, bid, "no payment for booking; ref " + statement.get(bid).reference);
+            }
+        }
+    }
+
+    // Owner menu entry
+    static void reconcile(Scanner sc) {
+        System.out.print("Statement CSV path: ");
+        String file = sc.nextLine().trim();
+        System.out.print("Worker threads [default 4]: ");
+        String w = sc.nextLine().trim();
+        try {
+            int workers = w.isEmpty() ? 4 : Integer.parseInt(w);
+            Path stmt = Paths.get(file);
+            Reconciliation r = new Reconciliation(stmt,
+                    Paths.get(file + ".checkpoint"), Paths.get(file + ".issues.csv"), workers);
+            System.out.println("Reconciliation finished. " + r.run());
+            System.out.println("Issues written to " + file + ".issues.csv");
+        } catch (NumberFormatException nfe) {
+            System.out.println("Invalid number of workers.");
+        } catch (Exception ex) {
+            System.out.println("Reconciliation failed: " + ex.getMessage());
+        }
+    }
+
+    // Batch entry point: java rims.Reconciliation <statement.csv> [workers]
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: java rims.Reconciliation <statement.csv> [workers]");
+            return;
+        }
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Reconciliation r = new Reconciliation(Paths.get(args[0]),
+                Paths.get(args[0] + ".checkpoint"), Paths.get(args[0] + ".issues.csv"), workers);
+        System.out.println(r.run());
+    }
+}
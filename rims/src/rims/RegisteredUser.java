@@ -0,0 +1,423 @@
+package rims;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+
+//   REGISTERED USER
+class RegisteredUser extends Admin {
+    static final String AVAILABLE_PROPERTIES_SQL =
+            "SELECT property_id, name, type, location, price_per_month, sharing FROM property " +
+            "WHERE availability_status='Available' ORDER BY property_id";
+    static final String PROPERTY_FOR_BOOKING_SQL =
+            "SELECT name, availability_status, price_per_month FROM property WHERE property_id=?";
+
+    private final int userId;
+
+    public RegisteredUser(int userId) { this.userId = userId; }
+
+    @Override
+    public void viewProperties() {
+        try {
+            List<Map.Entry<Integer, String>> rows = ShardRouter.gather(
+                    AVAILABLE_PROPERTIES_SQL,
+                    null,
+                    (shard, rs) -> {
+                        Object sharingObj = rs.getObject("sharing");
+                        String sharing = sharingObj == null ? "-" : String.valueOf(rs.getInt("sharing"));
+                        return Map.entry(rs.getInt("property_id"), String.format("%d | %s | %s | %s | %.2f | %s",
+                                rs.getInt("property_id"),
+                                rs.getString("name"),
+                                rs.getString("type"),
+                                rs.getString("location"),
+                                rs.getDouble("price_per_month"),
+                                sharing));
+                    },
+                    Map.Entry.comparingByKey());
+
+            System.out.println("\nID | Name | Type | Location | Price | Sharing");
+            for (Map.Entry<Integer, String> row : rows) System.out.println(row.getValue());
+            if (rows.isEmpty()) System.out.println("(No available properties)");
+        } catch (Exception ex) {
+            System.out.println("View failed: " + ex.getMessage());
+        }
+    }
+
+    // --- Verify credentials for payment (uses same Scanner; users live on the primary) ---
+    private OperationResult<Integer> verifyCredentials(Scanner sc) {
+        try (Connection con = connect();
+             PreparedStatement ps = con.prepareStatement("SELECT user_id FROM user WHERE email=? AND password=?")) {
+            System.out.print("Enter email: ");
+            String e = sc.nextLine().trim();
+            System.out.print("Enter password: ");
+            String p = sc.nextLine();
+            ps.setString(1, e);
+            ps.setString(2, p);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return OperationResult.ok(rs.getInt("user_id"), "Verified");
+                return OperationResult.fail("Invalid credentials");
+            }
+        } catch (Exception ex) {
+            return OperationResult.fail("Verification error: " + ex.getMessage());
+        }
+    }
+
+    // Asks for payment up front (uses the same Scanner); returns the status to record with the booking
+    private String paymentStatus(Scanner sc) {
+        System.out.println("\nProceed to payment:");
+        System.out.print("Pay now? (y/n): ");
+        String yn = sc.nextLine().trim();
+
+        if (yn.equalsIgnoreCase("y")) {
+            OperationResult<Integer> verify = verifyCredentials(sc);
+            if (verify.success) {
+                System.out.println("Verification success. Payment will be marked PAID.");
+                return "Paid";
+            }
+            System.out.println("Verification failed. Payment will be PENDING.");
+        } else {
+            System.out.println("Skipped payment. Payment will be PENDING.");
+        }
+        return "Pending";
+    }
+
+    private void pay(Connection con, int bookingId, double amount, String method, String status) throws Exception {
+        try (PreparedStatement ps = con.prepareStatement(
+                "INSERT INTO payment(booking_id, amount, method, status, date) VALUES (?,?,?,?,CURDATE())")) {
+            ps.setInt(1, bookingId);
+            ps.setBigDecimal(2, new java.math.BigDecimal(String.format("%.2f", amount)));
+            ps.setString(3, method);
+            ps.setString(4, status);
+            ps.executeUpdate();
+        }
+        System.out.println("Payment recorded: " + status);
+    }
+
+    // Full booking flow (uses single Scanner, date validation, updates availability, resident insert, payment)
+    void bookProperty(Scanner sc) {
+        viewProperties();
+        System.out.print("Enter Property ID to book: ");
+        int pid;
+        try {
+            pid = Integer.parseInt(sc.nextLine().trim());
+        } catch (NumberFormatException nfe) {
+            System.out.println("Booking failed: " + nfe.getMessage());
+            return;
+        }
+        if (book(pid, sc, true)) book(pid, sc, false);
+    }
+
+    // Returns true when the property was not on its routed shard but turned up on another one (retry once)
+    private boolean book(int pid, Scanner sc, boolean mayReroute) {
+        try (Connection con = connect(pid)) {
+
+            // Check availability and price
+            double price = 0.0;
+            String propertyName;
+            try (PreparedStatement chk = con.prepareStatement(PROPERTY_FOR_BOOKING_SQL)) {
+                chk.setInt(1, pid);
+                try (ResultSet rs = chk.executeQuery()) {
+                    if (!rs.next()) {
+                        if (mayReroute && rerouted(pid)) return true;
+                        System.out.println("Invalid Property ID.");
+                        return false;
+                    }
+                    boolean available = "Available".equalsIgnoreCase(rs.getString("availability_status"))
+                            && activeBooking(con, pid) == -1;
+                    if (available) {
+                        // Walk-ins only get the property when nobody is holding or waiting for it
+                        int next = Waitlist.nextInLine(con, pid);
+                        available = next == -1 || next == userId;
+                    }
+                    if (!available) {
+                        System.out.println("Property not available.");
+                        offerWaitlist(pid, sc);
+                        return false;
+                    }
+                    price = rs.getDouble("price_per_month");
+                    propertyName = rs.getString("name");
+                }
+            }
+
+            System.out.print("Start date (YYYY-MM-DD): ");
+            String s1 = sc.nextLine().trim();
+            System.out.print("End date (YYYY-MM-DD): ");
+            String s2 = sc.nextLine().trim();
+
+            LocalDate start, end;
+            try {
+                start = parseValidDate(s1);
+                end = parseValidDate(s2);
+                LocalDate today = LocalDate.now();
+                if (start.isBefore(today)) {
+                    System.out.println("Start date cannot be before today.");
+                    return false;
+                }
+                if (end.isBefore(start)) {
+                    System.out.println("End date cannot be before start date.");
+                    return false;
+                }
+            } catch (DateTimeParseException dt) {
+                System.out.println("Booking failed: invalid date format.");
+                return false;
+            } catch (IllegalArgumentException ia) {
+                System.out.println("Booking failed: " + ia.getMessage());
+                return false;
+            }
+
+            // Payment details are asked for before the transaction, so no locks are held while the user types
+            System.out.print("Payment method (UPI/Card/Cash) [default Cash]: ");
+            String method = sc.nextLine().trim();
+            if (method.isEmpty()) method = "Cash";
+            String payStatus = paymentStatus(sc);
+
+            con.setAutoCommit(false);
+            try {
+                // Re-check under a row lock so a concurrent booking or waitlist hold can't slip in
+                try (PreparedStatement lock = con.prepareStatement(
+                        "SELECT availability_status FROM property WHERE property_id=? FOR UPDATE")) {
+                    lock.setInt(1, pid);
+                    try (ResultSet rs = lock.executeQuery()) {
+                        if (!rs.next() || !"Available".equalsIgnoreCase(rs.getString("availability_status")))
+                            throw new SQLException("Property is no longer available.");
+                    }
+                }
+                if (activeBooking(con, pid) != -1) throw new SQLException("Property is no longer available.");
+                // Sweep run-out holds and hand the property to the head of the queue, whichever process made the hold
+                Waitlist.Offer promoted = Waitlist.offerNext(con, pid);
+                int holder = Waitlist.holder(con, pid);
+                if (holder != -1 && holder != userId) {
+                    con.commit(); // the refused booking wrote nothing, but the new offer must stick
+                    Waitlist.offered(promoted);
+                    System.out.println("Booking failed: Property is on hold for a waitlisted user.");
+                    return false;
+                }
+
+                int bookingId;
+                // Insert booking
+                try (PreparedStatement insB = con.prepareStatement(
+                        "INSERT INTO booking(user_id, property_id, start_date, end_date, status) VALUES (?,?,?,?, 'Active')",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    insB.setInt(1, userId);
+                    insB.setInt(2, pid);
+                    insB.setDate(3, java.sql.Date.valueOf(start));
+                    insB.setDate(4, java.sql.Date.valueOf(end));
+                    insB.executeUpdate();
+                    try (ResultSet keys = insB.getGeneratedKeys()) {
+                        if (!keys.next()) throw new SQLException("Failed to get booking_id");
+                        bookingId = keys.getInt(1);
+                    }
+                }
+
+                // Insert resident
+                try (PreparedStatement insR = con.prepareStatement(
+                        "INSERT INTO resident(user_id, property_id) VALUES (?,?)")) {
+                    insR.setInt(1, userId);
+                    insR.setInt(2, pid);
+                    insR.executeUpdate();
+                }
+
+                // Update property availability
+                try (PreparedStatement updP = con.prepareStatement(
+                        "UPDATE property SET availability_status='Booked' WHERE property_id=?")) {
+                    updP.setInt(1, pid);
+                    updP.executeUpdate();
+                }
+
+                Waitlist.accept(con, pid, userId);
+
+                pay(con, bookingId, price, method, payStatus);
+
+                con.commit();
+                BookingHistory.added(userId, bookingId, pid, propertyName, start, end);
+                System.out.println("Booking successful! Booking ID: " + bookingId);
+            } catch (Exception inner) {
+                con.rollback();
+                System.out.println("Booking failed: " + inner.getMessage());
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (Exception ex) {
+            System.out.println("Booking failed: " + ex.getMessage());
+        }
+        return false;
+    }
+
+    // Cancel booking (user) — the list and the ownership/status check come from the history cache
+    void cancelBooking(Scanner sc) {
+        BookingHistory.Rows rows;
+        try {
+            rows = BookingHistory.refresh(userId);
+        } catch (Exception ex) {
+            System.out.println("Error fetching bookings: " + ex.getMessage());
+            return;
+        }
+        System.out.println("\nYour Bookings:");
+        for (int i = 0; i < rows.size; i++) {
+            System.out.printf("Booking ID: %d | Property: %s | Status: %s%n",
+                    rows.bookingId[i],
+                    rows.property[i],
+                    rows.status[i]);
+        }
+        if (rows.size == 0) {
+            System.out.println("(No bookings found)");
+            return;
+        }
+
+        System.out.print("Enter Booking ID to cancel: ");
+        int bid;
+        try {
+            bid = Integer.parseInt(sc.nextLine().trim());
+        } catch (NumberFormatException nfe) {
+            System.out.println("Invalid Booking ID.");
+            return;
+        }
+
+        int row = rows.indexOf(bid);
+        if (row < 0) {
+            System.out.println("No such booking found for your account.");
+            return;
+        }
+        if ("Cancelled".equalsIgnoreCase(rows.status[row])) {
+            System.out.println("This booking is already cancelled.");
+            return;
+        }
+        int pid = rows.propertyId[row];
+
+        try {
+            Waitlist.ensureLoaded(); // before the transaction: creating the table locks property metadata
+            boolean cancelled = cancel(bid, pid);
+            if (!cancelled && rerouted(pid)) cancelled = cancel(bid, pid);
+            if (cancelled) System.out.println("✅ Booking cancelled successfully!");
+            else System.out.println("This booking is already cancelled.");
+        } catch (Exception ex) {
+            System.out.println("Cancel failed: " + ex.getMessage());
+        }
+    }
+
+    // Returns false when the guarded update matched nothing (already cancelled, or not on this shard)
+    private boolean cancel(int bid, int pid) throws Exception {
+        Waitlist.Offer offer;
+        try (Connection con = connect(pid)) {
+            con.setAutoCommit(false);
+            try {
+                // Guarded update doubles as the re-check in case the owner changed it since the refresh
+                try (PreparedStatement updB = con.prepareStatement(
+                        "UPDATE booking SET status='Cancelled' WHERE booking_id=? AND user_id=? AND status<>'Cancelled'")) {
+                    updB.setInt(1, bid);
+                    updB.setInt(2, userId);
+                    if (updB.executeUpdate() == 0) {
+                        con.rollback();
+                        return false;
+                    }
+                }
+
+                try (PreparedStatement delR = con.prepareStatement(
+                        "DELETE FROM resident WHERE user_id=? AND property_id=?")) {
+                    delR.setInt(1, userId);
+                    delR.setInt(2, pid);
+                    delR.executeUpdate();
+                }
+
+                try (PreparedStatement updP = con.prepareStatement(
+                        "UPDATE property SET availability_status='Available' WHERE property_id=?")) {
+                    updP.setInt(1, pid);
+                    updP.executeUpdate();
+                }
+
+                offer = Waitlist.offerNext(con, pid);
+                con.commit();
+            } catch (Exception inner) {
+                con.rollback();
+                throw inner;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+        BookingHistory.statusChanged(userId, bid, "Cancelled");
+        Waitlist.offered(offer);
+        return true;
+    }
+
+    // Offered when a booking is turned away
+    private void offerWaitlist(int pid, Scanner sc) {
+        System.out.print("Join the waitlist for this property? (y/n): ");
+        if (!sc.nextLine().trim().equalsIgnoreCase("y")) return;
+        OperationResult<Integer> r = Waitlist.join(pid, userId);
+        if (r.success) System.out.println("Added to waitlist. Your position: " + r.data);
+        else System.out.println(r.message);
+    }
+
+    // Waitlist positions and any property currently held for this user
+    private void viewWaitlist() {
+        List<Waitlist.Position> positions;
+        try {
+            positions = Waitlist.positionsFor(userId);
+        } catch (Exception ex) {
+            System.out.println("Error loading waitlist: " + ex.getMessage());
+            return;
+        }
+        System.out.println("\nYour Waitlist:");
+        boolean any = false;
+        for (Waitlist.Position p : positions) {
+            any = true;
+            if (p.position == 0)
+                System.out.printf("Property ID: %d | ON HOLD for you until %s — book it now!%n",
+                        p.propertyId, new Timestamp(p.offeredUntil));
+            else
+                System.out.printf("Property ID: %d | Position: %d%n", p.propertyId, p.position);
+        }
+        if (!any) System.out.println("(You are not on any waitlist)");
+    }
+
+    // View previous bookings (Cancelled or Completed), served from the history cache
+    private void viewPreviousBookings() {
+        try {
+            BookingHistory.Rows rows = BookingHistory.refresh(userId);
+            System.out.println("\nYour Previous Bookings:");
+            boolean any = false;
+            for (int i = 0; i < rows.size; i++) {
+                if (!"Cancelled".equals(rows.status[i]) && !"Completed".equals(rows.status[i])) continue;
+                any = true;
+                System.out.printf("Booking ID: %d | Property: %s | Status: %s | %s → %s%n",
+                        rows.bookingId[i],
+                        rows.property[i],
+                        rows.status[i],
+                        rows.start(i),
+                        rows.end(i));
+            }
+            if (!any) System.out.println("(No previous bookings found)");
+        } catch (Exception ex) {
+            System.out.println("Error fetching previous bookings: " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public void showMenu() {
+        Scanner sc = new Scanner(System.in);
+        while (true) {
+            System.out.println("\n==== User Menu ====");
+            System.out.println("1. View Available Properties");
+            System.out.println("2. Book Property");
+            System.out.println("3. Cancel Booking");
+            System.out.println("4. View Previous Bookings");
+            System.out.println("5. My Waitlist");
+            System.out.println("6. Logout");
+            System.out.print("Choice: ");
+            String ch = sc.nextLine();
+            switch (ch) {
+                case "1": viewProperties(); break;
+                case "2": bookProperty(sc); break;
+                case "3": cancelBooking(sc); break;
+                case "4": viewPreviousBookings(); break;
+                case "5": viewWaitlist(); break;
+                case "6": return;
+                default: System.out.println("Invalid Option.");
+            }
+        }
+    }
+}
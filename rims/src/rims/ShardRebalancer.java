@@ -0,0 +1,229 @@
+package rims;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+
+//   SHARD REBALANCER
+// Online maintenance for ShardRouter. A move copies one property with its bookings, residents,
+// payments and waitlist entries to the target shard while the source rows stay locked
+// (SELECT ... FOR UPDATE) and deletes the source rows in the same source transaction before anything
+// is committed, so a row the move does not know about (e.g. feedback referencing the property) fails
+// it with nothing changed. Then the copy commits, the delete commits, and only then does the
+// directory switch. Bookings, cancellations and owner updates on that property wait on the row lock
+// for the few milliseconds the move takes; every other property stays fully available.
+//
+// Rows keep their ids on the target; ShardRouter.initShards() keeps ids unique across shards.
+//
+//   java -Drims.shards=<url>,... rims.ShardRebalancer init | status | move <propertyId> <shard>
+//        | location <name> <shard> | auto
+final class ShardRebalancer {
+
+    // Per table: the rows that belong to one property
+    private static final String[][] OWNED = {
+        {"property", "property_id=?"},
+        {"booking", "property_id=?"},
+        {"resident", "property_id=?"},
+        {"payment", "booking_id IN (SELECT booking_id FROM booking WHERE property_id=?)"},
+        {"waitlist", "property_id=?"}
+    };
+
+    private ShardRebalancer() {}
+
+    private static boolean hasTable(Connection con, String table) throws SQLException {
+        try (ResultSet rs = con.getMetaData().getTables(con.getCatalog(), null, table, null)) {
+            return rs.next();
+        }
+    }
+
+    // Copies the matching rows column-for-column, keeping their ids; source rows stay locked
+    private static int copy(Connection from, Connection to, String table, String where, int pid) throws SQLException {
+        int n = 0;
+        try (PreparedStatement sel = from.prepareStatement("SELECT * FROM " + table + " WHERE " + where + " FOR UPDATE")) {
+            sel.setInt(1, pid);
+            try (ResultSet rs = sel.executeQuery()) {
+                ResultSetMetaData md = rs.getMetaData();
+                StringBuilder cols = new StringBuilder(), marks = new StringBuilder();
+                for (int c = 1; c <= md.getColumnCount(); c++) {
+                    cols.append(c == 1 ? "" : ",").append(md.getColumnName(c));
+                    marks.append(c == 1 ? "?" : ",?");
+                }
+                try (PreparedStatement ins = to.prepareStatement(
+                        "INSERT INTO " + table + " (" + cols + ") VALUES (" + marks + ")")) {
+                    while (rs.next()) {
+                        for (int c = 1; c <= md.getColumnCount(); c++) ins.setObject(c, rs.getObject(c));
+                        ins.addBatch();
+                        n++;
+                    }
+                    if (n > 0) ins.executeBatch();
+                }
+            }
+        }
+        return n;
+    }
+
+    // Deletes the property's rows, children first
+    private static void purge(Connection con, int pid) throws SQLException {
+        for (int i = OWNED.length - 1; i >= 0; i--) {
+            if (!hasTable(con, OWNED[i][0])) continue;
+            try (PreparedStatement del = con.prepareStatement("DELETE FROM " + OWNED[i][0] + " WHERE " + OWNED[i][1])) {
+                del.setInt(1, pid);
+                del.executeUpdate();
+            }
+        }
+    }
+
+    private static boolean exists(Connection con, int pid) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("SELECT property_id FROM property WHERE property_id=? FOR UPDATE")) {
+            ps.setInt(1, pid);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    static OperationResult<Integer> move(int pid, int target) {
+        if (target < 0 || target >= ShardRouter.count()) return OperationResult.fail("No shard " + target + ".");
+        try {
+            Waitlist.ensureLoaded();
+            int source = ShardRouter.shardOf(pid);
+            if (source == target) {
+                purgeStrays(pid, target);
+                return OperationResult.ok(0, "Property " + pid + " already on shard " + target + ".");
+            }
+
+            try (Connection src = ShardRouter.open(source);
+                 Connection dst = ShardRouter.open(target)) {
+                src.setAutoCommit(false);
+                dst.setAutoCommit(false);
+                int rows = 0;
+                try {
+                    if (!exists(src, pid)) {
+                        src.rollback();
+                        dst.rollback();
+                        // An earlier move committed both sides but died before switching the directory
+                        if (exists(dst, pid)) {
+                            ShardRouter.placed(pid, target);
+                            return OperationResult.ok(0, "Property " + pid + " already on shard " + target + "; directory updated.");
+                        }
+                        return OperationResult.fail("Property " + pid + " not found on shard " + source + ".");
+                    }
+                    purge(dst, pid); // leftovers of an earlier interrupted move
+                    for (String[] t : OWNED) {
+                        if (hasTable(src, t[0])) rows += copy(src, dst, t[0], t[1], pid);
+                    }
+                    try {
+                        purge(src, pid); // before either commit: proves nothing else still references the property
+                    } catch (SQLIntegrityConstraintViolationException ref) {
+                        throw new SQLException("other rows on shard " + source + " still reference it ("
+                                + ref.getMessage() + "); move or delete them first", ref);
+                    }
+                    dst.commit();
+                    src.commit();
+                } catch (Exception ex) {
+                    src.rollback();
+                    dst.rollback();
+                    throw ex;
+                } finally {
+                    src.setAutoCommit(true);
+                    dst.setAutoCommit(true);
+                }
+                ShardRouter.placed(pid, target); // only once the source rows are gone
+                return OperationResult.ok(rows, "Moved property " + pid + " from shard " + source + " to " + target + " (" + rows + " rows).");
+            }
+        } catch (Exception ex) {
+            return OperationResult.fail("Move of property " + pid + " failed: " + ex.getMessage() + " (re-run the move to finish it)");
+        }
+    }
+
+    // Removes copies of the property from every shard except its home (after a move that died mid-way)
+    private static void purgeStrays(int pid, int home) throws Exception {
+        for (int i = 0; i < ShardRouter.count(); i++) {
+            if (i == home) continue;
+            try (Connection con = ShardRouter.open(i)) {
+                con.setAutoCommit(false);
+                try {
+                    purge(con, pid);
+                    con.commit();
+                } catch (Exception ex) {
+                    con.rollback();
+                    throw ex;
+                } finally {
+                    con.setAutoCommit(true);
+                }
+            }
+        }
+    }
+
+    // Creates shard tables, lays out id sequences for the current shard count and registers every
+    // existing property in the directory (stop the application first)
+    private static void init() throws Exception {
+        ShardRouter.initShards();
+        Waitlist.ensureLoaded();
+        List<int[]> all = ShardRouter.gather("SELECT property_id FROM property ORDER BY property_id", null,
+                (shard, rs) -> new int[]{rs.getInt(1), shard}, null);
+        for (int[] p : all) ShardRouter.placed(p[0], p[1]);
+        System.out.println("Registered " + all.size() + " properties across " + ShardRouter.count() + " shards.");
+    }
+
+    private static void status() throws Exception {
+        List<String> lines = ShardRouter.gather(
+                "SELECT (SELECT COUNT(*) FROM property), (SELECT COUNT(*) FROM booking), (SELECT COUNT(*) FROM payment)", null,
+                (shard, rs) -> String.format("Shard %d | %s | properties %d | bookings %d | payments %d",
+                        shard, ShardRouter.urls().get(shard), rs.getLong(1), rs.getLong(2), rs.getLong(3)), null);
+        lines.forEach(System.out::println);
+    }
+
+    // Moves properties one at a time so locks stay short
+    private static void moveAll(List<int[]> moves) {
+        int ok = 0;
+        for (int[] m : moves) {
+            OperationResult<Integer> r = move(m[0], m[1]);
+            System.out.println(r.message);
+            if (r.success) ok++;
+        }
+        System.out.println(ok + " of " + moves.size() + " moves completed.");
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: init | status | move <propertyId> <shard> | location <name> <shard> | auto");
+            return;
+        }
+        switch (args[0]) {
+            case "init":
+                init();
+                break;
+            case "status":
+                status();
+                break;
+            case "move":
+                System.out.println(move(Integer.parseInt(args[1]), Integer.parseInt(args[2])).message);
+                break;
+            case "location": {
+                int target = Integer.parseInt(args[2]);
+                List<int[]> moves = new ArrayList<>();
+                for (int pid : ShardRouter.gather("SELECT property_id FROM property WHERE location=? ORDER BY property_id",
+                        (shard, ps) -> ps.setString(1, args[1]), (shard, rs) -> rs.getInt(1), Integer::compare)) {
+                    moves.add(new int[]{pid, target});
+                }
+                moveAll(moves);
+                break;
+            }
+            case "auto": {
+                // Brings every property onto the shard its location maps to now (after adding a shard
+                // or changing rims.shard.locations)
+                List<int[]> moves = new ArrayList<>();
+                for (int[] p : ShardRouter.gather("SELECT property_id, location FROM property ORDER BY property_id", null,
+                        (shard, rs) -> new int[]{rs.getInt(1), shard, ShardRouter.shardForLocation(rs.getString(2))}, null)) {
+                    if (p[1] != p[2]) moves.add(new int[]{p[0], p[2]});
+                }
+                moveAll(moves);
+                break;
+            }
+            default:
+                System.out.println("Unknown command: " + args[0]);
+        }
+    }
+}
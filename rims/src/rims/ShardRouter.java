@@ -0,0 +1,326 @@
+package rims;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+//   SHARD ROUTER
+// Splits property data across databases. Shard 0 is the primary (Admin.DB_URL) and also keeps the
+// user/admin tables and the shard_directory; extra shards are listed in -Drims.shards=<url>,<url>.
+// A property, together with its booking, resident, payment and waitlist rows, lives on exactly one
+// shard: new properties are placed by location (-Drims.shard.locations=City:shard,... or a hash of
+// the location), and the directory maps property_id -> shard for routing.
+// Ids stay unique across all shards, so rows keep their ids when ShardRebalancer moves them:
+// initShards() moves every id sequence past the highest id found on any shard and records the shard
+// count, and every shard connection is opened with auto_increment_increment=<shards> and its own
+// offset (set once per physical connection, see sessionVariables()), so new ids interleave above
+// that point. A sharded process whose shard list does not match the recorded count refuses to start
+// or touch property data (re-run ShardRebalancer init after changing the list).
+// With no extra shards nothing changes: everything routes to shard 0 and the directory is never touched.
+final class ShardRouter {
+
+    // Tables a non-primary shard needs; user ids there refer to the primary, so no FK to user
+    static final String[] SHARD_SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS property (property_id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100), type VARCHAR(20), location VARCHAR(100), price_per_month DECIMAL(10,2), availability_status VARCHAR(20) DEFAULT 'Available', sharing INT NULL)",
+        "CREATE TABLE IF NOT EXISTS booking (booking_id INT AUTO_INCREMENT PRIMARY KEY, user_id INT NOT NULL, property_id INT NOT NULL, start_date DATE, end_date DATE, status VARCHAR(20), updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3), INDEX idx_booking_user_updated (user_id, updated_at), FOREIGN KEY (property_id) REFERENCES property(property_id))",
+        "CREATE TABLE IF NOT EXISTS resident (resident_id INT AUTO_INCREMENT PRIMARY KEY, user_id INT NOT NULL, property_id INT NOT NULL, FOREIGN KEY (property_id) REFERENCES property(property_id))",
+        "CREATE TABLE IF NOT EXISTS payment (payment_id INT AUTO_INCREMENT PRIMARY KEY, booking_id INT NOT NULL, amount DECIMAL(10,2), method VARCHAR(20), status VARCHAR(20), date DATE, FOREIGN KEY (booking_id) REFERENCES booking(booking_id))"
+    };
+
+    private static final String CREATE_DIRECTORY =
+            "CREATE TABLE IF NOT EXISTS shard_directory (property_id INT PRIMARY KEY, shard INT NOT NULL)";
+    private static final String CREATE_CONFIG =
+            "CREATE TABLE IF NOT EXISTS shard_config (name VARCHAR(50) PRIMARY KEY, value VARCHAR(200) NOT NULL)";
+
+    // Tables whose ids must be unique across shards, with their id column
+    private static final String[][] ID_COLUMNS = {
+        {"property", "property_id"},
+        {"booking", "booking_id"},
+        {"resident", "resident_id"},
+        {"payment", "payment_id"},
+        {"waitlist", "waitlist_id"}
+    };
+
+    interface Binder {
+        void bind(int shard, PreparedStatement ps) throws SQLException;
+    }
+
+    interface Mapper<T> {
+        T map(int shard, ResultSet rs) throws SQLException;
+    }
+
+    private static final List<String> URLS = new ArrayList<>();
+    private static final Map<String, Integer> LOCATIONS = new HashMap<>();
+    private static final Map<Integer, Integer> DIRECTORY = new ConcurrentHashMap<>();
+    private static final ExecutorService GATHER = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "rims-shard-gather");
+        t.setDaemon(true);
+        return t;
+    });
+    private static volatile boolean directoryLoaded;
+    private static volatile boolean layoutChecked;
+
+    static {
+        URLS.add(Admin.DB_URL);
+        for (String u : System.getProperty("rims.shards", "").split(",")) {
+            if (!u.isBlank()) URLS.add(u.trim());
+        }
+        for (String m : System.getProperty("rims.shard.locations", "").split(",")) {
+            int colon = m.lastIndexOf(':');
+            if (colon > 0) LOCATIONS.put(m.substring(0, colon).trim().toLowerCase(), Integer.parseInt(m.substring(colon + 1).trim()));
+        }
+    }
+
+    private ShardRouter() {}
+
+    static int count() {
+        return URLS.size();
+    }
+
+    static boolean sharded() {
+        return URLS.size() > 1;
+    }
+
+    static Connection open(int shard) throws Exception {
+        if (sharded()) checkLayout(); // Main has normally done it at startup already
+        return session(shard);
+    }
+
+    // Goes through Admin.connectTo() so every shard shares the fast-start pool
+    private static Connection session(int shard) throws Exception {
+        return Admin.connectTo(URLS.get(shard));
+    }
+
+    // Connector/J sessionVariables for a database's connections: its slot in the interleaved id
+    // sequences. Null when not sharded or for a URL that is not one of the shards.
+    static String sessionVariables(String url) {
+        if (!sharded()) return null;
+        int shard = URLS.indexOf(url);
+        return shard < 0 ? null : "auto_increment_increment=" + count() + ",auto_increment_offset=" + (shard + 1);
+    }
+
+    // Shard count recorded by initShards(); 1 for a database that was never sharded
+    private static int recordedShards() throws Exception {
+        try (Connection con = Admin.connect()) {
+            try (ResultSet rs = con.getMetaData().getTables(con.getCatalog(), null, "shard_config", null)) {
+                if (!rs.next()) return 1;
+            }
+            try (Statement st = con.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT value FROM shard_config WHERE name='shards'")) {
+                return rs.next() ? Integer.parseInt(rs.getString(1)) : 1;
+            }
+        }
+    }
+
+    // Fails when this process's shard list does not match the one the ids were laid out for.
+    // Unsharded processes skip it, so a plain start never pays for the extra lookup.
+    static void checkLayout() throws Exception {
+        if (layoutChecked || !sharded()) return;
+        synchronized (URLS) {
+            if (layoutChecked) return;
+            int recorded = recordedShards();
+            if (recorded != count())
+                throw new SQLException("Database is set up for " + recorded + " shard(s) but " + count()
+                        + " are configured (-Drims.shards); run ShardRebalancer init with the new list first.");
+            layoutChecked = true;
+        }
+    }
+
+    // Home shard for new listings in a location
+    static int shardForLocation(String location) {
+        if (!sharded()) return 0;
+        String key = location == null ? "" : location.trim().toLowerCase();
+        Integer s = LOCATIONS.get(key);
+        if (s != null && s >= 0 && s < count()) return s;
+        return Math.floorMod(key.hashCode(), count());
+    }
+
+    private static void loadDirectory() throws Exception {
+        if (directoryLoaded) return;
+        synchronized (DIRECTORY) {
+            if (directoryLoaded) return;
+            try (Connection con = Admin.connect();
+                 Statement st = con.createStatement()) {
+                st.executeUpdate(CREATE_DIRECTORY);
+                try (ResultSet rs = st.executeQuery("SELECT property_id, shard FROM shard_directory")) {
+                    while (rs.next()) DIRECTORY.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+            directoryLoaded = true;
+        }
+    }
+
+    // Shard holding the property. Unknown ids are probed on every shard and remembered;
+    // ids found nowhere route to shard 0, where the caller's own lookup reports them as missing.
+    static int shardOf(int propertyId) throws Exception {
+        if (!sharded()) return 0;
+        loadDirectory();
+        Integer s = DIRECTORY.get(propertyId);
+        if (s != null) return s;
+        List<Integer> found = gather("SELECT property_id FROM property WHERE property_id=?",
+                (shard, ps) -> ps.setInt(1, propertyId), (shard, rs) -> shard, null);
+        if (found.isEmpty()) return 0;
+        placed(propertyId, found.get(0));
+        return found.get(0);
+    }
+
+    static Connection forProperty(int propertyId) throws Exception {
+        return open(shardOf(propertyId));
+    }
+
+    // Records where a property lives (after insert or move)
+    static void placed(int propertyId, int shard) throws Exception {
+        if (!sharded()) return;
+        loadDirectory();
+        try (Connection con = Admin.connect();
+             PreparedStatement ps = con.prepareStatement(
+                     "INSERT INTO shard_directory(property_id, shard) VALUES (?,?) ON DUPLICATE KEY UPDATE shard=VALUES(shard)")) {
+            ps.setInt(1, propertyId);
+            ps.setInt(2, shard);
+            ps.executeUpdate();
+        }
+        DIRECTORY.put(propertyId, shard);
+    }
+
+    static void removed(int propertyId) throws Exception {
+        if (!sharded()) return;
+        try (Connection con = Admin.connect();
+             PreparedStatement ps = con.prepareStatement("DELETE FROM shard_directory WHERE property_id=?")) {
+            ps.setInt(1, propertyId);
+            ps.executeUpdate();
+        }
+        DIRECTORY.remove(propertyId);
+    }
+
+    // Re-reads the property's route from the primary after a routed statement found nothing there
+    // (another process may have moved it). Returns true when the route changed, i.e. worth one retry.
+    static boolean reroute(int propertyId) throws Exception {
+        if (!sharded()) return false;
+        loadDirectory();
+        Integer before = DIRECTORY.remove(propertyId);
+        Integer after = null;
+        try (Connection con = Admin.connect();
+             PreparedStatement ps = con.prepareStatement("SELECT shard FROM shard_directory WHERE property_id=?")) {
+            ps.setInt(1, propertyId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) after = rs.getInt(1);
+            }
+        }
+        if (after != null) DIRECTORY.put(propertyId, after);
+        else after = shardOf(propertyId); // not registered: probe the shards
+        return before == null || before.intValue() != after;
+    }
+
+    // Runs the query on every shard in parallel. With an order, each shard's result must already be
+    // sorted by it (ORDER BY in the SQL) and the lists are k-way merged; without one they are concatenated.
+    static <T> List<T> gather(String sql, Binder binder, Mapper<T> mapper, Comparator<? super T> order) throws Exception {
+        if (!sharded()) return queryShard(0, sql, binder, mapper);
+
+        List<Future<List<T>>> jobs = new ArrayList<>();
+        for (int i = 0; i < count(); i++) {
+            final int shard = i;
+            jobs.add(GATHER.submit(() -> queryShard(shard, sql, binder, mapper)));
+        }
+        List<List<T>> parts = new ArrayList<>();
+        for (Future<List<T>> f : jobs) {
+            try {
+                parts.add(f.get());
+            } catch (ExecutionException ee) {
+                Throwable c = ee.getCause();
+                if (c instanceof Exception) throw (Exception) c;
+                throw ee;
+            }
+        }
+        return order == null ? concat(parts) : merge(parts, order);
+    }
+
+    private static <T> List<T> queryShard(int shard, String sql, Binder binder, Mapper<T> mapper) throws Exception {
+        List<T> out = new ArrayList<>();
+        try (Connection con = open(shard);
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            if (binder != null) binder.bind(shard, ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(mapper.map(shard, rs));
+            }
+        }
+        return out;
+    }
+
+    private static <T> List<T> concat(List<List<T>> parts) {
+        List<T> out = new ArrayList<>();
+        for (List<T> p : parts) out.addAll(p);
+        return out;
+    }
+
+    private static <T> List<T> merge(List<List<T>> parts, Comparator<? super T> order) {
+        List<T> out = new ArrayList<>();
+        int[] pos = new int[parts.size()];
+        PriorityQueue<Integer> heads = new PriorityQueue<>(
+                Math.max(1, parts.size()), (a, b) -> order.compare(parts.get(a).get(pos[a]), parts.get(b).get(pos[b])));
+        for (int i = 0; i < parts.size(); i++) {
+            if (!parts.get(i).isEmpty()) heads.add(i);
+        }
+        while (!heads.isEmpty()) {
+            int i = heads.poll();
+            out.add(parts.get(i).get(pos[i]++));
+            if (pos[i] < parts.get(i).size()) heads.add(i);
+        }
+        return out;
+    }
+
+    // Creates the shard tables, moves every id sequence on every shard past the highest id found on
+    // any shard, and records the shard count. Run it with the application stopped, and again after
+    // every change to the shard list: existing ids stay unique and new ones interleave above them.
+    static void initShards() throws Exception {
+        if (!sharded()) return;
+        synchronized (URLS) {
+            for (int i = 0; i < count(); i++) {
+                try (Connection con = session(i);
+                     Statement st = con.createStatement()) {
+                    if (i > 0) for (String ddl : SHARD_SCHEMA) st.executeUpdate(ddl);
+                    st.executeUpdate(Waitlist.CREATE_TABLE);
+                }
+            }
+            for (String[] t : ID_COLUMNS) {
+                long max = 0;
+                for (int i = 0; i < count(); i++) {
+                    try (Connection con = session(i);
+                         Statement st = con.createStatement();
+                         ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(" + t[1] + "), 0) FROM " + t[0])) {
+                        rs.next();
+                        max = Math.max(max, rs.getLong(1));
+                    }
+                }
+                for (int i = 0; i < count(); i++) {
+                    try (Connection con = session(i);
+                         Statement st = con.createStatement()) {
+                        st.executeUpdate("ALTER TABLE " + t[0] + " AUTO_INCREMENT=" + (max + 1));
+                    }
+                }
+            }
+            try (Connection con = Admin.connect();
+                 Statement st = con.createStatement()) {
+                st.executeUpdate(CREATE_CONFIG);
+                st.executeUpdate("INSERT INTO shard_config(name, value) VALUES ('shards', '" + count() + "') " +
+                        "ON DUPLICATE KEY UPDATE value=VALUES(value)");
+            }
+            layoutChecked = true;
+        }
+        loadDirectory();
+    }
+
+    static List<String> urls() {
+        return Collections.unmodifiableList(URLS);
+    }
+}
@@ -0,0 +1,23 @@
+package rims;
+
+import java.util.Scanner;
+
+
+//   LOOKER
+
+class Sightseer extends Admin {
+    @Override
+    public void showMenu() {
+        Scanner sc = new Scanner(System.in);
+        while (true) {
+            System.out.println("\n==== Looker Menu ====");
+            System.out.println("1. View Available Properties");
+            System.out.println("2. Exit");
+            System.out.print("Choice: ");
+            String ch = sc.nextLine();
+            if (ch.equals("1")) viewProperties();
+            else if (ch.equals("2")) return;
+            else System.out.println("Invalid Option.");
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package rims;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+//   STARTUP BENCHMARK
+// Launches RIMS in a fresh JVM several times, continues as Looker, views properties and exits through
+// the menus, timing (from process launch) the first welcome menu and the first viewProperties result.
+// Input is sent one line per menu because every menu opens its own Scanner on System.in. The clean
+// exit matters: a JVM started with -XX:ArchiveClassesAtExit only writes its CDS archive on normal exit.
+//
+//   java -cp <classpath> rims.StartupBenchmark runs=10 fast=true jvm=-XX:SharedArchiveFile=rims.jsa
+// rims.db.* system properties given to the benchmark are passed on to the child JVMs.
+final class StartupBenchmark {
+    // Returns {ms to first menu, ms to first view result}; -1 where the marker was never seen
+    private static long[] runOnce(List<String> command) throws Exception {
+        long t0 = System.nanoTime();
+        Process p = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long menu = -1, view = -1;
+        boolean header = false;
+        try (OutputStream in = p.getOutputStream();
+             BufferedReader out = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                long now = (System.nanoTime() - t0) / 1_000_000;
+                if (line.contains("==== Welcome to RIMS ====")) {
+                    if (menu < 0) menu = now;
+                    send(in, view < 0 ? "4" : "5"); // Continue as Looker, then Exit
+                } else if (line.contains("==== Looker Menu ====")) {
+                    send(in, view < 0 ? "1" : "2"); // View Available Properties, then back
+                } else if (view >= 0) {
+                    continue;
+                } else if (line.contains("View failed")) {
+                    System.out.println("  child reported: " + line.trim());
+                    view = now;
+                } else if (header) {
+                    view = now;
+                } else if (line.startsWith("ID | Name")) {
+                    header = true;
+                }
+            }
+            p.waitFor();
+        } finally {
+            p.destroy();
+        }
+        return new long[]{menu, view};
+    }
+
+    private static void send(OutputStream in, String line) throws Exception {
+        in.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        in.flush();
+    }
+
+    private static long median(List<Long> l) {
+        List<Long> s = new ArrayList<>(l);
+        Collections.sort(s);
+        return s.isEmpty() ? -1 : s.get(s.size() / 2);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq > 0) opts.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+        int runs = Integer.parseInt(opts.getOrDefault("runs", "5"));
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (opts.containsKey("jvm")) command.addAll(Arrays.asList(opts.get("jvm").trim().split("\\s+")));
+        for (String k : System.getProperties().stringPropertyNames()) {
+            if (k.startsWith("rims.")) command.add("-D" + k + "=" + System.getProperty(k));
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("rims.Main");
+        if (Boolean.parseBoolean(opts.getOrDefault("fast", "true"))) command.add("--fast-start");
+
+        System.out.println("Command: " + String.join(" ", command));
+        List<Long> menus = new ArrayList<>(), views = new ArrayList<>();
+        for (int i = 1; i <= runs; i++) {
+            long[] t = runOnce(command);
+            System.out.printf("Run %d: first menu %d ms | first viewProperties result %d ms%n", i, t[0], t[1]);
+            if (t[0] >= 0) menus.add(t[0]);
+            if (t[1] >= 0) views.add(t[1]);
+        }
+        System.out.printf("%nMedian over %d runs: first menu %d ms | first viewProperties result %d ms%n",
+                runs, median(menus), median(views));
+    }
+}
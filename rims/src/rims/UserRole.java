@@ -0,0 +1,9 @@
+package rims;
+
+
+//UserRole Interface
+interface UserRole {
+    void showMenu();
+    void viewProperties();
+    default void viewFeedback() {}
+}
@@ -0,0 +1,330 @@
+package rims;
+
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+//   WAITLIST
+// Per-property FIFO waitlists kept in the waitlist table on the property's shard. Every write path
+// locks the property row first (SELECT ... FOR UPDATE), so at most one entry per property can be in
+// the 'Offered' state and a user can only be queued once per property. Positions are read back with
+// one indexed query per shard, so offers made by other processes show up straight away. Holds that
+// ran out are expired by the next offerNext() on the property in any process; the in-process timer
+// only prompts it.
+final class Waitlist {
+    static final long HOLD_MILLIS = Long.getLong("rims.waitlist.holdMillis", 15 * 60 * 1000L);
+
+    static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS waitlist (" +
+            "waitlist_id INT AUTO_INCREMENT PRIMARY KEY, " +
+            "property_id INT NOT NULL, " +
+            "user_id INT NOT NULL, " +
+            "status VARCHAR(20) NOT NULL DEFAULT 'Waiting', " +
+            "joined_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "offered_until TIMESTAMP NULL, " +
+            "INDEX idx_waitlist_property (property_id, status), " +
+            "INDEX idx_waitlist_user (user_id, status), " +
+            "FOREIGN KEY (property_id) REFERENCES property(property_id) ON DELETE CASCADE)"; // users may live on another shard
+
+    // A property offered to the head of its queue
+    static final class Offer {
+        public final int waitlistId;
+        public final int propertyId;
+        public final int userId;
+        public final long offeredUntil;
+
+        Offer(int waitlistId, int propertyId, int userId, long offeredUntil) {
+            this.waitlistId = waitlistId;
+            this.propertyId = propertyId;
+            this.userId = userId;
+            this.offeredUntil = offeredUntil;
+        }
+    }
+
+    // A user's standing on one property's waitlist (position 0 means the property is on hold for them)
+    static final class Position {
+        public final int propertyId;
+        public final int position;
+        public final long offeredUntil;
+
+        Position(int propertyId, int position, long offeredUntil) {
+            this.propertyId = propertyId;
+            this.position = position;
+            this.offeredUntil = offeredUntil;
+        }
+    }
+
+    static final String HOLDER_SQL =
+            "SELECT user_id FROM waitlist WHERE property_id=? AND status='Offered' AND offered_until > ?";
+    static final String NEXT_IN_LINE_SQL =
+            "SELECT user_id FROM waitlist WHERE property_id=? " +
+            "AND (status='Waiting' OR (status='Offered' AND offered_until > ?)) " +
+            "ORDER BY status='Offered' DESC, waitlist_id LIMIT 1";
+
+    // The user's open entries, each with the number of Waiting entries up to and including it
+    static final String POSITIONS_SQL =
+            "SELECT w.property_id, w.status, w.offered_until, " +
+            "(SELECT COUNT(*) FROM waitlist a WHERE a.property_id=w.property_id AND a.status='Waiting' " +
+            "AND a.waitlist_id <= w.waitlist_id) AS position " +
+            "FROM waitlist w WHERE w.user_id=? AND (w.status='Waiting' OR (w.status='Offered' AND w.offered_until > ?)) " +
+            "ORDER BY w.property_id";
+
+    private static final ScheduledExecutorService EXPIRY = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "rims-waitlist-expiry");
+        t.setDaemon(true);
+        return t;
+    });
+    private static volatile boolean loaded;
+
+    private Waitlist() {}
+
+    // Creates the table on every shard on first use and restarts the hold timers of open offers.
+    // Call it before opening a transaction that touches property: the DDL needs a metadata lock on it.
+    static void ensureLoaded() throws Exception {
+        if (loaded) return;
+        synchronized (Waitlist.class) {
+            if (loaded) return;
+            for (int shard = 0; shard < ShardRouter.count(); shard++) {
+                try (Connection con = ShardRouter.open(shard)) {
+                    try (Statement st = con.createStatement()) {
+                        st.executeUpdate(CREATE_TABLE);
+                    }
+                    try (Statement st = con.createStatement();
+                         ResultSet rs = st.executeQuery(
+                                 "SELECT waitlist_id, property_id, user_id, offered_until FROM waitlist WHERE status='Offered'")) {
+                        while (rs.next()) {
+                            Timestamp until = rs.getTimestamp("offered_until");
+                            scheduleExpiry(new Offer(rs.getInt("waitlist_id"), rs.getInt("property_id"),
+                                    rs.getInt("user_id"), until == null ? 0L : until.getTime()));
+                        }
+                    }
+                }
+            }
+            loaded = true;
+        }
+    }
+
+    // Adds the user to the back of the property's queue; returns their position
+    static OperationResult<Integer> join(int propertyId, int userId) {
+        try {
+            ensureLoaded();
+            try (Connection con = Admin.connect(propertyId)) {
+                con.setAutoCommit(false);
+                try {
+                    // The property row lock serialises joins, so the duplicate check holds across processes
+                    try (PreparedStatement lock = con.prepareStatement(
+                            "SELECT property_id FROM property WHERE property_id=? FOR UPDATE")) {
+                        lock.setInt(1, propertyId);
+                        try (ResultSet rs = lock.executeQuery()) {
+                            if (!rs.next()) {
+                                con.rollback();
+                                return OperationResult.fail("Invalid Property ID.");
+                            }
+                        }
+                    }
+                    try (PreparedStatement dup = con.prepareStatement(
+                            "SELECT waitlist_id FROM waitlist WHERE property_id=? AND user_id=? " +
+                            "AND (status='Waiting' OR (status='Offered' AND offered_until > ?))")) {
+                        dup.setInt(1, propertyId);
+                        dup.setInt(2, userId);
+                        dup.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+                        try (ResultSet rs = dup.executeQuery()) {
+                            if (rs.next()) {
+                                con.rollback();
+                                return OperationResult.fail("You are already on the waitlist for this property.");
+                            }
+                        }
+                    }
+
+                    int wid;
+                    try (PreparedStatement ps = con.prepareStatement(
+                            "INSERT INTO waitlist(property_id, user_id, status) VALUES (?,?,'Waiting')",
+                            Statement.RETURN_GENERATED_KEYS)) {
+                        ps.setInt(1, propertyId);
+                        ps.setInt(2, userId);
+                        ps.executeUpdate();
+                        try (ResultSet keys = ps.getGeneratedKeys()) {
+                            if (!keys.next()) throw new SQLException("Failed to get waitlist_id");
+                            wid = keys.getInt(1);
+                        }
+                    }
+
+                    int position;
+                    try (PreparedStatement pos = con.prepareStatement(
+                            "SELECT COUNT(*) FROM waitlist WHERE property_id=? AND status='Waiting' AND waitlist_id <= ?")) {
+                        pos.setInt(1, propertyId);
+                        pos.setInt(2, wid);
+                        try (ResultSet rs = pos.executeQuery()) {
+                            rs.next();
+                            position = rs.getInt(1);
+                        }
+                    }
+                    con.commit();
+                    return OperationResult.ok(position, "Joined waitlist");
+                } catch (Exception inner) {
+                    con.rollback();
+                    throw inner;
+                } finally {
+                    con.setAutoCommit(true);
+                }
+            }
+        } catch (Exception ex) {
+            return OperationResult.fail("Could not join waitlist: " + ex.getMessage());
+        }
+    }
+
+    // "My waitlist position" — read fresh from every shard on each view
+    static List<Position> positionsFor(int userId) throws Exception {
+        ensureLoaded();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        return ShardRouter.gather(
+                POSITIONS_SQL,
+                (shard, ps) -> {
+                    ps.setInt(1, userId);
+                    ps.setTimestamp(2, now);
+                },
+                (shard, rs) -> {
+                    if ("Offered".equals(rs.getString("status")))
+                        return new Position(rs.getInt("property_id"), 0, rs.getTimestamp("offered_until").getTime());
+                    return new Position(rs.getInt("property_id"), rs.getInt("position"), 0L);
+                },
+                (a, b) -> Integer.compare(a.propertyId, b.propertyId));
+    }
+
+    // Returns the user currently holding an unexpired offer on the property, or -1.
+    // Callers that act on the answer should hold the property row lock.
+    static int holder(Connection con, int propertyId) throws Exception {
+        ensureLoaded();
+        try (PreparedStatement ps = con.prepareStatement(HOLDER_SQL)) {
+            ps.setInt(1, propertyId);
+            ps.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt("user_id") : -1;
+            }
+        }
+    }
+
+    // Returns the user the property goes to next: the holder of an unexpired offer, else the head
+    // of the queue, or -1 when nobody is waiting. A hint only; booking re-checks under the row lock.
+    static int nextInLine(Connection con, int propertyId) throws Exception {
+        ensureLoaded();
+        try (PreparedStatement ps = con.prepareStatement(NEXT_IN_LINE_SQL)) {
+            ps.setInt(1, propertyId);
+            ps.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt("user_id") : -1;
+            }
+        }
+    }
+
+    /* Offers the property to the head of its queue inside the caller's transaction.
+       Returns null when the property is not Available, has an Active booking, is already on hold,
+       or nobody is waiting. Pass the result to offered() once the transaction has committed. */
+    static Offer offerNext(Connection con, int propertyId) throws Exception {
+        ensureLoaded();
+        String availability;
+        try (PreparedStatement lock = con.prepareStatement(
+                "SELECT availability_status FROM property WHERE property_id=? FOR UPDATE")) {
+            lock.setInt(1, propertyId);
+            try (ResultSet rs = lock.executeQuery()) {
+                if (!rs.next()) return null;
+                availability = rs.getString("availability_status");
+            }
+        }
+
+        // Holds whose time is up, including ones made by a process that has since exited
+        long now = System.currentTimeMillis();
+        try (PreparedStatement sweep = con.prepareStatement(
+                "UPDATE waitlist SET status='Expired' WHERE property_id=? AND status='Offered' AND offered_until <= ?")) {
+            sweep.setInt(1, propertyId);
+            sweep.setTimestamp(2, new Timestamp(now));
+            sweep.executeUpdate();
+        }
+        if (!"Available".equalsIgnoreCase(availability)) return null;
+
+        if (Admin.activeBooking(con, propertyId) != -1) return null;
+
+        try (PreparedStatement chk = con.prepareStatement(
+                "SELECT waitlist_id FROM waitlist WHERE property_id=? AND status='Offered'")) {
+            chk.setInt(1, propertyId);
+            try (ResultSet rs = chk.executeQuery()) {
+                if (rs.next()) return null;
+            }
+        }
+
+        int wid, uid;
+        try (PreparedStatement head = con.prepareStatement(
+                "SELECT waitlist_id, user_id FROM waitlist WHERE property_id=? AND status='Waiting' " +
+                "ORDER BY waitlist_id LIMIT 1 FOR UPDATE")) {
+            head.setInt(1, propertyId);
+            try (ResultSet rs = head.executeQuery()) {
+                if (!rs.next()) return null;
+                wid = rs.getInt("waitlist_id");
+                uid = rs.getInt("user_id");
+            }
+        }
+
+        long until = now + HOLD_MILLIS;
+        try (PreparedStatement upd = con.prepareStatement(
+                "UPDATE waitlist SET status='Offered', offered_until=? WHERE waitlist_id=?")) {
+            upd.setTimestamp(1, new Timestamp(until));
+            upd.setInt(2, wid);
+            upd.executeUpdate();
+        }
+        return new Offer(wid, propertyId, uid, until);
+    }
+
+    // Starts the hold timer of a committed offer
+    static void offered(Offer o) {
+        if (o == null) return;
+        scheduleExpiry(o);
+    }
+
+    // Marks the user's entry as fulfilled inside the booking transaction
+    static void accept(Connection con, int propertyId, int userId) throws Exception {
+        ensureLoaded();
+        try (PreparedStatement ps = con.prepareStatement(
+                "UPDATE waitlist SET status='Accepted' WHERE property_id=? AND user_id=? AND status IN ('Waiting','Offered')")) {
+            ps.setInt(1, propertyId);
+            ps.setInt(2, userId);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void scheduleExpiry(Offer o) {
+        long delay = Math.max(0L, o.offeredUntil - System.currentTimeMillis());
+        EXPIRY.schedule(() -> expire(o), delay, TimeUnit.MILLISECONDS);
+    }
+
+    // Expires run-out holds on the property and offers it to the next user in line, in its own transaction
+    static Offer promote(int propertyId) throws Exception {
+        ensureLoaded();
+        Offer next;
+        try (Connection con = Admin.connect(propertyId)) {
+            con.setAutoCommit(false);
+            try {
+                next = offerNext(con, propertyId);
+                con.commit();
+            } catch (Exception inner) {
+                con.rollback();
+                throw inner;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+        offered(next);
+        return next;
+    }
+
+    // Hold timer: prompts promote() as soon as the offer runs out
+    private static void expire(Offer o) {
+        try {
+            promote(o.propertyId);
+        } catch (Exception ex) {
+            System.out.println("Waitlist hold expiry failed: " + ex.getMessage());
+        }
+    }
+}
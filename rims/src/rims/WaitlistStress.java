@@ -0,0 +1,232 @@
+package rims;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+
+//   WAITLIST STRESS
+// Races bookings, cancellations, owner status changes, hold expiries and waitlist joins on a single
+// property from many threads while a monitor thread keeps sampling that property's rows. The run
+// fails (exit code 1) if any sample shows more than one 'Offered' waitlist entry or more than one
+// Active booking. Holds are shortened (hold=<ms>) so offers expire and move on during the run.
+// Point it at a scratch database that already has the RIMS tables (e.g. LoadGenerator setup=true).
+//
+//   java -Drims.db.url=<scratch db> rims.WaitlistStress threads=16 seconds=30 users=20 hold=200
+final class WaitlistStress {
+    private static final String[] OPS = {"book", "cancel", "owner", "expire", "join"};
+
+    private final int threads;
+    private final long seconds;
+    private final int users;
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private final List<String> violations = Collections.synchronizedList(new ArrayList<>());
+    private final LongAdder samples = new LongAdder();
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final List<Integer> userIds = new ArrayList<>();
+    private int propertyId;
+
+    WaitlistStress(Map<String, String> opts) {
+        this.threads = Integer.parseInt(opts.getOrDefault("threads", "16"));
+        this.seconds = Long.parseLong(opts.getOrDefault("seconds", "30"));
+        this.users = Integer.parseInt(opts.getOrDefault("users", "20"));
+    }
+
+    // A fresh property for this run plus the stress users (created once, reused afterwards)
+    private void setup() throws Exception {
+        try (Connection con = Admin.connect()) {
+            try (PreparedStatement ps = con.prepareStatement(
+                    "INSERT IGNORE INTO user(name,email,password,phone) VALUES (?,?,?,?)")) {
+                for (int i = 0; i < users; i++) {
+                    ps.setString(1, "Stress User " + i);
+                    ps.setString(2, "stress-" + i + "@rims.test");
+                    ps.setString(3, "stress");
+                    ps.setString(4, String.format("8%09d", i));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = con.prepareStatement("SELECT user_id FROM user WHERE email=?")) {
+                for (int i = 0; i < users; i++) {
+                    ps.setString(1, "stress-" + i + "@rims.test");
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) userIds.add(rs.getInt(1));
+                    }
+                }
+            }
+        }
+
+        int shard = ShardRouter.shardForLocation("Stress");
+        try (Connection con = ShardRouter.open(shard);
+             PreparedStatement ps = con.prepareStatement(
+                     "INSERT INTO property (name, type, location, price_per_month, availability_status, sharing) VALUES (?,?,?,?,?,?)",
+                     Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, "Stress Property " + System.currentTimeMillis());
+            ps.setString(2, "House");
+            ps.setString(3, "Stress");
+            ps.setDouble(4, 10000);
+            ps.setString(5, "Booked");
+            ps.setNull(6, Types.INTEGER);
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (!keys.next()) throw new SQLException("Failed to get property_id");
+                propertyId = keys.getInt(1);
+            }
+        }
+        ShardRouter.placed(propertyId, shard);
+
+        Waitlist.ensureLoaded();
+        for (int uid : userIds) Waitlist.join(propertyId, uid);
+    }
+
+    // {offered entries, active bookings} for the property, read in one statement (one snapshot)
+    private long[] sample(Connection con) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(
+                "SELECT (SELECT COUNT(*) FROM waitlist WHERE property_id=? AND status='Offered'), " +
+                "(SELECT COUNT(*) FROM booking WHERE property_id=? AND status='Active')")) {
+            ps.setInt(1, propertyId);
+            ps.setInt(2, propertyId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return new long[]{rs.getLong(1), rs.getLong(2)};
+            }
+        }
+    }
+
+    private void check(long[] s) {
+        samples.increment();
+        if (s[0] > 1 || s[1] > 1)
+            violations.add(String.format("%tT.%<tL offered=%d active=%d", System.currentTimeMillis(), s[0], s[1]));
+    }
+
+    private void monitor() {
+        try (Connection con = Admin.connect(propertyId)) {
+            while (running.get()) check(sample(con));
+        } catch (Exception ex) {
+            violations.add("monitor stopped: " + ex.getMessage());
+        }
+    }
+
+    private void step(String op) throws Exception {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        int uid = userIds.get(rnd.nextInt(userIds.size()));
+        switch (op) {
+            case "book": {
+                // An unavailable property asks "join the waitlist?" and reads the start date line as "no"
+                LocalDate start = LocalDate.now().plusDays(1);
+                new RegisteredUser(uid).bookProperty(LoadGenerator.script(propertyId, start, start.plusDays(30), "Cash", "n"));
+                break;
+            }
+            case "cancel": {
+                int bid = -1, owner = -1;
+                try (Connection con = Admin.connect(propertyId);
+                     PreparedStatement ps = con.prepareStatement(
+                             "SELECT booking_id, user_id FROM booking WHERE property_id=? AND status='Active' LIMIT 1")) {
+                    ps.setInt(1, propertyId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            bid = rs.getInt(1);
+                            owner = rs.getInt(2);
+                        }
+                    }
+                }
+                if (bid > 0) new RegisteredUser(owner).cancelBooking(LoadGenerator.script(bid));
+                break;
+            }
+            case "owner":
+                new Admin().changePropertyAvailability(
+                        LoadGenerator.script(propertyId, rnd.nextInt(4) == 0 ? "Not Available" : "Available"));
+                break;
+            case "expire":
+                // What another process's hold timer would do
+                Waitlist.promote(propertyId);
+                break;
+            case "join":
+                Waitlist.join(propertyId, uid);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown op: " + op);
+        }
+    }
+
+    private void run() throws Exception {
+        setup();
+        if (userIds.isEmpty()) throw new IllegalStateException("No stress users could be created.");
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // the menus' own output
+        Thread mon = new Thread(this::monitor, "rims-stress-monitor");
+        mon.start();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        try {
+            for (int t = 0; t < threads; t++) {
+                pool.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        String op = OPS[ThreadLocalRandom.current().nextInt(OPS.length)];
+                        try {
+                            step(op);
+                            counts.computeIfAbsent(op, k -> new LongAdder()).increment();
+                        } catch (Exception ex) {
+                            counts.computeIfAbsent(op + ":error", k -> new LongAdder()).increment();
+                        }
+                    }
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+        } finally {
+            running.set(false);
+            mon.join();
+            System.setOut(console);
+        }
+        try (Connection con = Admin.connect(propertyId)) {
+            check(sample(con));
+        }
+
+        System.out.println("Property " + propertyId + " | threads " + threads + " | " + seconds + " s | hold "
+                + Waitlist.HOLD_MILLIS + " ms");
+        Map<String, Long> sorted = new TreeMap<>();
+        counts.forEach((k, v) -> sorted.put(k, v.sum()));
+        System.out.println("\nOperation | Count");
+        sorted.forEach((k, v) -> System.out.println(k + " | " + v));
+        System.out.println("\nMonitor samples: " + samples.sum());
+        if (violations.isEmpty()) {
+            System.out.println("At most one offer and one active booking at a time: OK");
+        } else {
+            System.out.println("FAILED: " + violations.size() + " violating samples, first ones:");
+            violations.stream().limit(10).forEach(v -> System.out.println("  " + v));
+            System.exit(1);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq <= 0) {
+                System.out.println("Arguments are key=value: threads seconds users hold");
+                return;
+            }
+            opts.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+        // Must be set before Waitlist is first used
+        if (System.getProperty("rims.waitlist.holdMillis") == null)
+            System.setProperty("rims.waitlist.holdMillis", opts.getOrDefault("hold", "200"));
+        new WaitlistStress(opts).run();
+    }
+}